@@ -1,11 +1,28 @@
 package ru.practicum;
 
 import org.springframework.boot.SpringApplication;
-import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationExcludeFilter;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
-@SpringBootApplication
+/**
+ * The stats server classes are on the classpath for the embedded mode, so its package is left out of scanning
+ * here and only picked up by {@link ru.practicum.event.EmbeddedStatsConfig}.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@ComponentScan(excludeFilters = {
+        @ComponentScan.Filter(type = FilterType.CUSTOM, classes = TypeExcludeFilter.class),
+        @ComponentScan.Filter(type = FilterType.CUSTOM, classes = AutoConfigurationExcludeFilter.class),
+        @ComponentScan.Filter(type = FilterType.REGEX, pattern = "ru\\.practicum\\.stats\\..*")})
+@EnableJpaRepositories(excludeFilters = @ComponentScan.Filter(type = FilterType.REGEX,
+        pattern = "ru\\.practicum\\.stats\\..*"))
 public class MainService {
     public static void main(String[] args) {
         SpringApplication.run(MainService.class, args);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,78 @@
+package ru.practicum.event;
+
+import org.springframework.beans.factory.annotation.Value;
+import ru.practicum.common.dto.StatsRangeQuery;
+import ru.practicum.event.model.Event;
+import ru.practicum.utils.RequestTimingFilter;
+
+import javax.servlet.http.HttpServletRequest;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Hit recording and cached view counts shared by the stats server client and the embedded engine. Implementations
+ * only send a hit and load unique hits for a set of uri ranges.
+ */
+public abstract class AbstractStatService implements StatService {
+    private final ViewCountCache viewCountCache;
+    @Value("${app.name}")
+    private String app;
+
+    protected AbstractStatService(ViewCountCache viewCountCache) {
+        this.viewCountCache = viewCountCache;
+    }
+
+    @Override
+    public void addHit(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        String ip = request.getRemoteAddr();
+        LocalDateTime timestamp = LocalDateTime.now();
+        RequestTimingFilter.afterCompletion(request, durationMicros ->
+                sendHit(app, uri, ip, timestamp, durationMicros));
+    }
+
+    @Override
+    public long getViews(Event event) {
+        if (event.getState() != EventState.PUBLISHED || event.getPublishedOn() == null) {
+            return 0L;
+        }
+        return viewCountCache.get(List.of(event), this::loadViews).getOrDefault(event.getId(), 0L);
+    }
+
+    @Override
+    public void getViewsList(List<Event> events) {
+        List<Event> published = new ArrayList<>();
+        for (Event event : events) {
+            event.setViews(0L);
+            if (event.getState() == EventState.PUBLISHED && event.getPublishedOn() != null) {
+                published.add(event);
+            }
+        }
+        Map<Long, Long> views = viewCountCache.get(published, this::loadViews);
+        published.forEach(event -> event.setViews(views.getOrDefault(event.getId(), 0L)));
+    }
+
+    protected abstract void sendHit(String app, String uri, String ip, LocalDateTime timestamp, Long durationMicros);
+
+    /**
+     * Unique hits per uri, each counted over its own range. Uris without hits may be left out.
+     */
+    protected abstract Map<String, Long> loadHits(List<StatsRangeQuery> ranges);
+
+    private Map<Long, Long> loadViews(List<Event> events) {
+        Map<Long, Long> views = new HashMap<>();
+        if (events.isEmpty()) {
+            return views;
+        }
+        LocalDateTime end = LocalDateTime.now();
+        Map<String, Long> eventIds = new HashMap<>();
+        List<StatsRangeQuery> ranges = new ArrayList<>();
+        for (Event event : events) {
+            String uri = "/events/" + event.getId();
+            eventIds.put(uri, event.getId());
+            ranges.add(new StatsRangeQuery(uri, event.getPublishedOn(), end));
+        }
+        loadHits(ranges).forEach((uri, hits) -> views.merge(eventIds.get(uri), hits, Long::sum));
+        return views;
+    }
+}
@@ -0,0 +1,38 @@
+package ru.practicum.event;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import ru.practicum.common.dto.HitDto;
+import ru.practicum.common.dto.StatsQueryRequest;
+import ru.practicum.common.dto.StatsRangeQuery;
+import ru.practicum.stats.service.StatsService;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Calls the stats engine in-process instead of going through {@link ru.practicum.main.client.StatsClient}.
+ */
+@Service
+@ConditionalOnProperty(name = "stats-server.mode", havingValue = "embedded")
+public class EmbeddedStatServiceImpl extends AbstractStatService {
+    private final StatsService statsService;
+
+    public EmbeddedStatServiceImpl(StatsService statsService, ViewCountCache viewCountCache) {
+        super(viewCountCache);
+        this.statsService = statsService;
+    }
+
+    @Override
+    protected void sendHit(String app, String uri, String ip, LocalDateTime timestamp, Long durationMicros) {
+        statsService.createHitDtos(List.of(new HitDto(app, uri, ip, timestamp, durationMicros)).iterator());
+    }
+
+    @Override
+    protected Map<String, Long> loadHits(List<StatsRangeQuery> ranges) {
+        Map<String, Long> hits = new HashMap<>();
+        statsService.queryStats(StatsQueryRequest.builder().ranges(ranges).unique(true).build())
+                .forEach(result -> hits.merge(result.getUri(), result.getHits(), Long::sum));
+        return hits;
+    }
+}
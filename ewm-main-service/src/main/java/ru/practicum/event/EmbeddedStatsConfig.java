@@ -0,0 +1,26 @@
+package ru.practicum.event;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import ru.practicum.stats.StatisticService;
+
+/**
+ * Runs the stats engine inside the main service on its datasource. Only the service layer is loaded: the stats
+ * server's controllers, error handler and web config stay out, so its endpoints are not exposed here. Hits are
+ * ingested after the request completes, outside any transaction of the main service, and the stats tables are
+ * created if missing but never dropped.
+ */
+@Configuration
+@ConditionalOnProperty(name = "stats-server.mode", havingValue = "embedded")
+@ComponentScan(basePackages = "ru.practicum.stats", excludeFilters = {
+        @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = StatisticService.class),
+        @ComponentScan.Filter(type = FilterType.REGEX,
+                pattern = "ru\\.practicum\\.stats\\.(controller|exception|config|admission)\\..*")})
+@EnableJpaRepositories(basePackages = "ru.practicum.stats.repository")
+@EnableScheduling
+public class EmbeddedStatsConfig {
+}
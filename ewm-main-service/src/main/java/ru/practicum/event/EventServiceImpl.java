@@ -198,12 +198,6 @@ public class EventServiceImpl implements AdminEventService, PublicEventService,
                 !update.getRequestIds().isEmpty();
     }
 
-    private void completeWithViews(EventDto eventDto) {
-        Long eventId = eventDto.getId();
-        Long views = statService.getViews(eventId);
-        eventDto.setViews(views);
-    }
-
     private EventFilterParams convertInputParams(EventFilterParamsDto paramsDto) {
         EventFilterParams params;
         try {
@@ -404,7 +398,7 @@ public class EventServiceImpl implements AdminEventService, PublicEventService,
     private EventFullDto completeEventFullDto(Event event) {
         EventFullDto eventFullDto = eventMapper.toEventFullDto(event);
         Long confirmedRequests = requestRepository.countByEventIdAndStatus(event.getId(), RequestStatus.CONFIRMED);
-        completeWithViews(eventFullDto);
+        eventFullDto.setViews(statService.getViews(event));
         eventFullDto.setConfirmedRequests(confirmedRequests);
         return eventFullDto;
     }
@@ -10,7 +10,10 @@ public interface StatService {
 
     void addHit(HttpServletRequest request);
 
-    Long getViews(Long eventId);
+    /**
+     * Unique views of an already loaded event since it was published.
+     */
+    long getViews(Event event);
 
     void getViewsList(List<Event> events);
 }
\ No newline at end of file
@@ -1,83 +1,51 @@
 package ru.practicum.event;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import ru.practicum.common.dto.ViewStats;
-import ru.practicum.event.model.Event;
-import ru.practicum.event.repository.EventRepository;
-import ru.practicum.exception.JsonException;
-import ru.practicum.exception.NotFoundException;
+import ru.practicum.common.dto.StatsRangeQuery;
+import ru.practicum.exception.StatsUnavailableException;
 import ru.practicum.main.client.StatsClient;
 
-import javax.servlet.http.HttpServletRequest;
 import java.time.LocalDateTime;
 import java.util.*;
 
 @Service
-@RequiredArgsConstructor
-public class StatServiceImpl implements StatService {
+@ConditionalOnExpression("'${stats-server.mode:sync}' != 'embedded'")
+public class StatServiceImpl extends AbstractStatService {
     private final StatsClient statsClient;
-    private final EventRepository repository;
-    private final ObjectMapper mapper;
-    @Value("${app.name}")
-    private String app;
-    private static final TypeReference<List<ViewStats>> TYPE_REFERENCE_LIST = new TypeReference<>() {};
 
-    @Override
-    public void addHit(HttpServletRequest request) {
-        String uri = request.getRequestURI();
-        String ip = request.getRemoteAddr();
-        LocalDateTime timestamp = LocalDateTime.now();
-        statsClient.addHit(app, uri, ip, timestamp);
+    public StatServiceImpl(StatsClient statsClient, ViewCountCache viewCountCache) {
+        super(viewCountCache);
+        this.statsClient = statsClient;
     }
 
     @Override
-    public Long getViews(Long eventId) {
-        Event event = repository.findById(eventId)
-                .orElseThrow(() -> new NotFoundException("Event not found."));
-        if (event.getState() != EventState.PUBLISHED) {
-            return 0L;
-        }
-        LocalDateTime start = event.getPublishedOn();
-        LocalDateTime end = LocalDateTime.now();
-        String uri = "/events/" + event.getId();
-        ResponseEntity<Object> response = statsClient.getStats(start, end, List.of(uri), true);
-        try {
-            String responseValue = mapper.writeValueAsString(response.getBody());
-            List<ViewStats> viewStats = Arrays.asList(mapper.readValue(responseValue, new TypeReference<>(){}));
-            return viewStats.isEmpty() ? 0 : viewStats.get(0).getHits();
-        } catch (JsonProcessingException e) {
-            throw new JsonException("Can’t create an instance of the class");
-        }
+    protected void sendHit(String app, String uri, String ip, LocalDateTime timestamp, Long durationMicros) {
+        statsClient.addHit(app, uri, ip, timestamp, durationMicros);
     }
 
+    /**
+     * A single range is read through {@code /stats}, which the stats server caches; several through one batch query.
+     */
     @Override
-    public void getViewsList(List<Event> events) {
-        LocalDateTime start = events.get(0).getCreatedOn();
-        LocalDateTime end = LocalDateTime.now();
-        List<String> uris = new ArrayList<>();
-        String uri;
-        Map<String, Event> eventsUri = new HashMap<>();
-        for (Event event : events) {
-            if (start.isBefore(event.getCreatedOn())) {
-                start = event.getCreatedOn();
-            }
-            uri = "/events/" + event.getId();
-            uris.add(uri);
-            eventsUri.put(uri, event);
-            event.setViews(0L);
+    protected Map<String, Long> loadHits(List<StatsRangeQuery> ranges) {
+        Map<String, Long> hits = new HashMap<>();
+        if (ranges.size() == 1) {
+            StatsRangeQuery range = ranges.get(0);
+            body(statsClient.getViewStats(range.getStart(), range.getEnd(), List.of(range.getUri()), true))
+                    .forEach(stats -> hits.merge(stats.getUri(), stats.getHits(), Long::sum));
+        } else {
+            body(statsClient.queryStats(ranges, true))
+                    .forEach(result -> hits.merge(result.getUri(), result.getHits(), Long::sum));
         }
-        ResponseEntity<Object> response = statsClient.getStats(start, end, uris, true);
-        if (response.getStatusCode() == HttpStatus.OK) {
-            List<ViewStats> stats = mapper.convertValue(response.getBody(), TYPE_REFERENCE_LIST);
-            stats.forEach((stat) ->
-                    eventsUri.get(stat.getUri()).setViews(stat.getHits()));
+        return hits;
+    }
+
+    private static <T> List<T> body(ResponseEntity<List<T>> response) {
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            throw new StatsUnavailableException("Stats server responded with " + response.getStatusCode());
         }
+        return response.getBody() == null ? List.of() : response.getBody();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,141 @@
+package ru.practicum.event;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.event.model.Event;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded cache of view counts by event id. Misses of one call are loaded together, and a concurrent call that
+ * needs an event already being loaded waits for that load instead of starting another. A count older than
+ * {@code freshness} is still served for up to {@code max-staleness} while it is reloaded in the background.
+ */
+@Slf4j
+@Component
+public class ViewCountCache {
+
+    private final boolean enabled;
+    private final long freshnessNanos;
+    private final AsyncCache<Long, Views> cache;
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+    private final Counter staleCounter;
+
+    public ViewCountCache(@Value("${stats-server.views-cache.enabled:false}") boolean enabled,
+                          @Value("${stats-server.views-cache.max-entries:10000}") long maxEntries,
+                          @Value("${stats-server.views-cache.freshness:1s}") Duration freshness,
+                          @Value("${stats-server.views-cache.max-staleness:5s}") Duration maxStaleness,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.freshnessNanos = freshness.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(freshness.plus(maxStaleness))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "event-views");
+        this.staleCounter = Counter.builder("cache.stale-served")
+                .tag("cache", "event-views")
+                .description("View counts served past their freshness while being reloaded")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the views of the given events, calling {@code loader} for the ones that are not cached. The loader
+     * may leave out events without views. If it fails, events with a cached count, even a stale one, keep it and the
+     * rest are left out of the result without caching anything for them.
+     */
+    public Map<Long, Long> get(List<Event> events, Function<List<Event>, Map<Long, Long>> loader) {
+        if (events.isEmpty()) {
+            return new HashMap<>();
+        }
+        if (!enabled) {
+            try {
+                return loader.apply(events);
+            } catch (RuntimeException e) {
+                log.warn("Failed to load views of {} events: {}", events.size(), e.getMessage());
+                return new HashMap<>();
+            }
+        }
+        Map<Long, Event> byId = events.stream()
+                .collect(Collectors.toMap(Event::getId, Function.identity(), (first, second) -> first));
+        Map<Long, Views> views;
+        try {
+            views = cache.getAll(byId.keySet(), (ids, executor) ->
+                    CompletableFuture.completedFuture(load(ids, byId, loader))).join();
+        } catch (RuntimeException e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.warn("Failed to load views of {} events: {}", byId.size(), cause.getMessage());
+            views = cached(byId.keySet());
+        }
+        long now = System.nanoTime();
+        List<Event> stale = new ArrayList<>();
+        Map<Long, Long> result = new HashMap<>();
+        views.forEach((id, value) -> {
+            result.put(id, value.getCount());
+            if (now - value.getLoadedAt() > freshnessNanos && refreshing.add(id)) {
+                stale.add(byId.get(id));
+            }
+        });
+        if (!stale.isEmpty()) {
+            staleCounter.increment(stale.size());
+            refresh(stale, loader);
+        }
+        return result;
+    }
+
+    private void refresh(List<Event> stale, Function<List<Event>, Map<Long, Long>> loader) {
+        Map<Long, Event> byId = stale.stream().collect(Collectors.toMap(Event::getId, Function.identity()));
+        CompletableFuture.supplyAsync(() -> load(byId.keySet(), byId, loader))
+                .whenComplete((views, e) -> {
+                    if (e != null) {
+                        log.warn("Failed to reload views of {} events: {}", byId.size(), e.getMessage());
+                    } else {
+                        views.forEach((id, value) -> cache.put(id, CompletableFuture.completedFuture(value)));
+                    }
+                    refreshing.removeAll(byId.keySet());
+                });
+    }
+
+    private Map<Long, Views> cached(Set<Long> ids) {
+        Map<Long, Views> views = new HashMap<>();
+        for (Long id : ids) {
+            CompletableFuture<Views> future = cache.getIfPresent(id);
+            if (future != null && future.isDone() && !future.isCompletedExceptionally()) {
+                views.put(id, future.join());
+            }
+        }
+        return views;
+    }
+
+    private static Map<Long, Views> load(Iterable<? extends Long> ids, Map<Long, Event> byId,
+                                         Function<List<Event>, Map<Long, Long>> loader) {
+        List<Event> events = new ArrayList<>();
+        ids.forEach(id -> events.add(byId.get(id)));
+        Map<Long, Long> counts = loader.apply(events);
+        long loadedAt = System.nanoTime();
+        Map<Long, Views> views = new HashMap<>();
+        for (Long id : ids) {
+            views.put(id, new Views(counts.getOrDefault(id, 0L), loadedAt));
+        }
+        return views;
+    }
+
+    @lombok.Value
+    private static class Views {
+        long count;
+        long loadedAt;
+    }
+}
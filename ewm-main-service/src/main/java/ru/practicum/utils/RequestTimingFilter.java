@@ -0,0 +1,62 @@
+package ru.practicum.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Times each request from the moment it enters the application until the handler chain returns, and runs the
+ * actions registered with {@link #afterCompletion} with that duration.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestTimingFilter extends OncePerRequestFilter {
+
+    private static final String ACTIONS = RequestTimingFilter.class.getName() + ".ACTIONS";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        List<Consumer<Long>> actions = new ArrayList<>();
+        request.setAttribute(ACTIONS, actions);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long elapsedMicros = (System.nanoTime() - start) / 1000;
+            for (Consumer<Long> action : actions) {
+                try {
+                    action.accept(elapsedMicros);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to run completion action for {}: {}", request.getRequestURI(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the action with the request duration in microseconds once the handler chain returns. Outside the
+     * filter the duration is unknown, so the action runs right away with {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    public static void afterCompletion(HttpServletRequest request, Consumer<Long> action) {
+        Object actions = request.getAttribute(ACTIONS);
+        if (actions instanceof List) {
+            ((List<Consumer<Long>>) actions).add(action);
+        } else {
+            action.accept(null);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package ru.practicum.stats;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class StatisticService {
     public static void main(String[] args) {
         SpringApplication.run(StatisticService.class, args);
@@ -0,0 +1,49 @@
+package ru.practicum.stats.admission;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import ru.practicum.stats.admission.AdmissionLimiter.Decision;
+import ru.practicum.stats.exception.IngestOverloadedException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Applies {@link AdmissionLimiter} to the hit endpoints. A rejected request fails fast with 429 and
+ * {@code Retry-After}; a dropped one is answered 202 without a body and never reaches the service.
+ */
+@Component
+@RequiredArgsConstructor
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+    private static final String STARTED = AdmissionInterceptor.class.getName() + ".started";
+
+    private final AdmissionLimiter limiter;
+    private final AdmissionProperties properties;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Decision decision = limiter.acquire();
+        if (decision == Decision.REJECT) {
+            throw new IngestOverloadedException("Stats server is overloaded, hit was not accepted",
+                    properties.getRetryAfter());
+        }
+        if (decision == Decision.DROP) {
+            response.setStatus(HttpStatus.ACCEPTED.value());
+            return false;
+        }
+        request.setAttribute(STARTED, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object started = request.getAttribute(STARTED);
+        if (started != null) {
+            limiter.release(System.nanoTime() - (long) started);
+        }
+    }
+}
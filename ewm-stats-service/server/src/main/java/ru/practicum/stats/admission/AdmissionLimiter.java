@@ -0,0 +1,102 @@
+package ru.practicum.stats.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.admission.AdmissionProperties.ShedMode;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit for hit ingestion that adapts to latency, after the Gradient2 algorithm: a long-term average of
+ * request latency is compared with the latest sample, and the limit shrinks by their ratio when latency grows
+ * beyond {@code rttTolerance}, otherwise grows by its square root. The limit is not raised while less than half of
+ * it is in use, so an idle server does not drift to {@code maxLimit}.
+ */
+@Component
+public class AdmissionLimiter {
+
+    private static final double LONG_WINDOW = 600;
+
+    private final AdmissionProperties properties;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final Counter rejectedCounter;
+    private final Counter droppedCounter;
+    private volatile double limit;
+    private double longRtt;
+
+    public AdmissionLimiter(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.limit = properties.getInitialLimit();
+        this.rejectedCounter = Counter.builder("stats.admission.shed")
+                .tag("action", "rejected")
+                .description("Hit requests refused because the concurrency limit was reached")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("stats.admission.shed")
+                .tag("action", "dropped")
+                .description("Hit requests acknowledged without storing them")
+                .register(meterRegistry);
+        Gauge.builder("stats.admission.limit", this, limiter -> limiter.limit).register(meterRegistry);
+        Gauge.builder("stats.admission.inflight", inflight, AtomicInteger::get).register(meterRegistry);
+    }
+
+    public Decision acquire() {
+        double currentLimit = limit;
+        if (properties.getMode() == ShedMode.DROP && shouldDrop(inflight.get(), currentLimit)) {
+            droppedCounter.increment();
+            return Decision.DROP;
+        }
+        while (true) {
+            int current = inflight.get();
+            if (current >= currentLimit) {
+                rejectedCounter.increment();
+                return Decision.REJECT;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return Decision.ADMIT;
+            }
+        }
+    }
+
+    /**
+     * Releases an admitted request and feeds its latency into the limit.
+     */
+    public void release(long rttNanos) {
+        int current = inflight.getAndDecrement();
+        update(rttNanos, current);
+    }
+
+    /**
+     * Random early drop: the drop probability grows linearly from {@code dropThreshold} of the limit to the limit.
+     */
+    private boolean shouldDrop(int current, double currentLimit) {
+        double from = currentLimit * properties.getDropThreshold();
+        if (current < from) {
+            return false;
+        }
+        return current >= currentLimit || ThreadLocalRandom.current().nextDouble() < (current - from) / (currentLimit - from);
+    }
+
+    private synchronized void update(long rttNanos, int current) {
+        double rtt = Math.max(rttNanos, 1);
+        longRtt = longRtt == 0 ? rtt : longRtt + (rtt - longRtt) / LONG_WINDOW;
+        if (longRtt / rtt > 2) {
+            longRtt *= 0.95;
+        }
+        if (current < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, properties.getRttTolerance() * longRtt / rtt));
+        double target = limit * gradient + Math.sqrt(limit);
+        double smoothed = limit * (1 - properties.getSmoothing()) + target * properties.getSmoothing();
+        limit = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), smoothed));
+    }
+
+    public enum Decision {
+        ADMIT,
+        REJECT,
+        DROP
+    }
+}
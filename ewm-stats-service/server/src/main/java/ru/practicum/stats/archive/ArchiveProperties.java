@@ -0,0 +1,19 @@
+package ru.practicum.stats.archive;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "stats.archive")
+public class ArchiveProperties {
+
+    private boolean enabled;
+
+    private Path dir = Path.of("archive");
+}
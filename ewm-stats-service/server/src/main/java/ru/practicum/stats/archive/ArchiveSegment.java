@@ -0,0 +1,192 @@
+package ru.practicum.stats.archive;
+
+import lombok.Value;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable file of archived hits. After a short header come independently deflated blocks of at most
+ * {@link ArchiveSegmentWriter#BLOCK_ROWS} rows of a single uri, sorted by time, each row holding the app index,
+ * the ip, the time delta in epoch seconds and the weight as varints. A deflated index at the end lists the app
+ * dictionary and the uri, position, row count and time range of every block, so a query only reads and inflates
+ * the blocks of the uris and times it asks for.
+ */
+public class ArchiveSegment {
+
+    static final int MAGIC = 0x45574D41;
+    static final byte VERSION = 2;
+
+    private static final int TRAILER_LENGTH = Long.BYTES + Integer.BYTES;
+
+    private final Path file;
+    private final long rows;
+    private final long minTime;
+    private final long maxTime;
+    private final String[] apps;
+    private final Map<String, List<Block>> blocks = new LinkedHashMap<>();
+
+    public ArchiveSegment(Path file) throws IOException {
+        this.file = file;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = read(channel, 0, Integer.BYTES + 1);
+            if (header.getInt() != MAGIC || header.get() != VERSION) {
+                throw new IOException("Not an archive segment: " + file);
+            }
+            ByteBuffer trailer = read(channel, channel.size() - TRAILER_LENGTH, TRAILER_LENGTH);
+            long indexOffset = trailer.getLong();
+            if (trailer.getInt() != MAGIC) {
+                throw new IOException("Incomplete archive segment: " + file);
+            }
+            ByteBuffer section = read(channel, indexOffset, (int) (channel.size() - TRAILER_LENGTH - indexOffset));
+            int rawLength = section.getInt();
+            int compressedLength = section.getInt();
+            ByteBuffer index = inflate(section.slice().limit(compressedLength), rawLength);
+            rows = readVarLong(index);
+            minTime = readVarLong(index);
+            maxTime = readVarLong(index);
+            apps = new String[(int) readVarLong(index)];
+            for (int i = 0; i < apps.length; i++) {
+                apps[i] = readString(index);
+            }
+            for (long i = readVarLong(index); i > 0; i--) {
+                Block block = new Block(readString(index), readVarLong(index), (int) readVarLong(index),
+                        (int) readVarLong(index), (int) readVarLong(index), readVarLong(index), readVarLong(index));
+                blocks.computeIfAbsent(block.getUri(), key -> new ArrayList<>()).add(block);
+            }
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public boolean overlaps(LocalDateTime from, LocalDateTime to, boolean toInclusive) {
+        return rows > 0 && overlaps(minTime, maxTime, from.toEpochSecond(ZoneOffset.UTC),
+                to.toEpochSecond(ZoneOffset.UTC), toInclusive);
+    }
+
+    public void forEach(LocalDateTime from, LocalDateTime to, boolean toInclusive, Collection<String> uriFilter,
+                        HitConsumer consumer) {
+        if (!overlaps(from, to, toInclusive)) {
+            return;
+        }
+        long fromSecond = from.toEpochSecond(ZoneOffset.UTC);
+        long toSecond = to.toEpochSecond(ZoneOffset.UTC);
+        List<Block> selected = new ArrayList<>();
+        for (String uri : uriFilter == null ? blocks.keySet() : uriFilter) {
+            for (Block block : blocks.getOrDefault(uri, List.of())) {
+                if (overlaps(block.getMinTime(), block.getMaxTime(), fromSecond, toSecond, toInclusive)) {
+                    selected.add(block);
+                }
+            }
+        }
+        if (selected.isEmpty()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (Block block : selected) {
+                ByteBuffer in = inflate(read(channel, block.getOffset(), block.getCompressedLength()),
+                        block.getRawLength());
+                long time = block.getMinTime();
+                for (int row = 0; row < block.getRows(); row++) {
+                    String app = apps[(int) readVarLong(in)];
+                    String ip = readString(in);
+                    time += readVarLong(in);
+                    int weight = (int) readVarLong(in);
+                    if (time >= fromSecond && (toInclusive ? time <= toSecond : time < toSecond)) {
+                        consumer.accept(app, block.getUri(), ip, weight);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean overlaps(long minTime, long maxTime, long fromSecond, long toSecond, boolean toInclusive) {
+        return maxTime >= fromSecond && (toInclusive ? minTime <= toSecond : minTime < toSecond);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated archive segment");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static ByteBuffer inflate(ByteBuffer compressed, int rawLength) {
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int read = 0;
+            while (read < rawLength && !inflater.finished() && !inflater.needsInput()) {
+                read += inflater.inflate(raw, read, rawLength - read);
+            }
+            if (read < rawLength) {
+                throw new DataFormatException("Truncated block");
+            }
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Corrupted archive segment block", e));
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readVarLong(in);
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    @Value
+    static class Block {
+        String uri;
+        long offset;
+        int compressedLength;
+        int rawLength;
+        int rows;
+        long minTime;
+        long maxTime;
+    }
+
+    public interface HitConsumer {
+        void accept(String app, String uri, String ip, int weight);
+    }
+}
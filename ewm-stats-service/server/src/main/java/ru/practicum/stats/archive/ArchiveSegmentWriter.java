@@ -0,0 +1,206 @@
+package ru.practicum.stats.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * Streams hits grouped by uri and sorted by time within each uri into an {@link ArchiveSegment}. Only the rows of
+ * the current block and the index are held in memory.
+ */
+public class ArchiveSegmentWriter implements Closeable {
+
+    static final int BLOCK_ROWS = 1 << 16;
+
+    private final CountingOutputStream counter;
+    private final DataOutputStream out;
+    private final Map<String, Integer> apps = new HashMap<>();
+    private final List<String> appNames = new ArrayList<>();
+    private final Set<String> closedUris = new HashSet<>();
+    private final List<ArchiveSegment.Block> blocks = new ArrayList<>();
+    private final VarIntBuffer block = new VarIntBuffer();
+    private String uri;
+    private int blockRows;
+    private long blockMinTime;
+    private long previousTime;
+    private long rows;
+    private long minTime = Long.MAX_VALUE;
+    private long maxTime = Long.MIN_VALUE;
+
+    public ArchiveSegmentWriter(Path file) throws IOException {
+        this.counter = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        this.out = new DataOutputStream(counter);
+        out.writeInt(ArchiveSegment.MAGIC);
+        out.writeByte(ArchiveSegment.VERSION);
+    }
+
+    /**
+     * Adds a hit. All hits of a uri must be added one after another, in request time order.
+     */
+    public void add(String app, String uri, String ip, LocalDateTime time, int weight) {
+        long second = time.toEpochSecond(ZoneOffset.UTC);
+        try {
+            if (!uri.equals(this.uri)) {
+                flushBlock();
+                if (this.uri != null) {
+                    closedUris.add(this.uri);
+                }
+                if (closedUris.contains(uri)) {
+                    throw new IllegalArgumentException("Hits of uri " + uri + " must be added together");
+                }
+                this.uri = uri;
+            } else if (blockRows == BLOCK_ROWS) {
+                flushBlock();
+            }
+            if (blockRows == 0) {
+                blockMinTime = second;
+                previousTime = second;
+            } else if (second < previousTime) {
+                throw new IllegalArgumentException("Hits of a uri must be added in request time order");
+            }
+            block.writeVarInt(apps.computeIfAbsent(app, key -> {
+                appNames.add(key);
+                return appNames.size() - 1;
+            }));
+            block.writeString(ip);
+            block.writeVarInt(second - previousTime);
+            block.writeVarInt(weight);
+            previousTime = second;
+            blockRows++;
+            rows++;
+            minTime = Math.min(minTime, second);
+            maxTime = Math.max(maxTime, second);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long size() {
+        return rows;
+    }
+
+    /**
+     * Writes the index after the last block. The segment is complete only once this returns.
+     */
+    public void finish() throws IOException {
+        flushBlock();
+        VarIntBuffer index = new VarIntBuffer();
+        index.writeVarInt(rows);
+        index.writeVarInt(rows == 0 ? 0 : minTime);
+        index.writeVarInt(rows == 0 ? 0 : maxTime);
+        index.writeVarInt(appNames.size());
+        for (String app : appNames) {
+            index.writeString(app);
+        }
+        index.writeVarInt(blocks.size());
+        for (ArchiveSegment.Block indexed : blocks) {
+            index.writeString(indexed.getUri());
+            index.writeVarInt(indexed.getOffset());
+            index.writeVarInt(indexed.getCompressedLength());
+            index.writeVarInt(indexed.getRawLength());
+            index.writeVarInt(indexed.getRows());
+            index.writeVarInt(indexed.getMinTime());
+            index.writeVarInt(indexed.getMaxTime());
+        }
+        long indexOffset = counter.count;
+        byte[] raw = index.toByteArray();
+        out.writeInt(raw.length);
+        byte[] compressed = deflate(raw, raw.length);
+        out.writeInt(compressed.length);
+        out.write(compressed);
+        out.writeLong(indexOffset);
+        out.writeInt(ArchiveSegment.MAGIC);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockRows == 0) {
+            return;
+        }
+        byte[] compressed = deflate(block.buffer(), block.size());
+        blocks.add(new ArchiveSegment.Block(uri, counter.count, compressed.length, block.size(), blockRows,
+                blockMinTime, previousTime));
+        out.write(compressed);
+        block.reset();
+        blockRows = 0;
+    }
+
+    private static byte[] deflate(byte[] raw, int length) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 4 + 16);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw, 0, length);
+            deflater.finish();
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                compressed.write(chunk, 0, deflater.deflate(chunk));
+            }
+        } finally {
+            deflater.end();
+        }
+        return compressed.toByteArray();
+    }
+
+    private static final class VarIntBuffer extends ByteArrayOutputStream {
+
+        void writeVarInt(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            writeBytes(bytes);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package ru.practicum.stats.archive;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.stats.model.AppUri;
+import ru.practicum.stats.rollup.RangePlan.Segment;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Cold tier of raw hits: one or more {@link ArchiveSegment} files per month, named
+ * {@code hits-yyyy-MM-<sequence>.seg}. Everything before {@link #archivedUntil()} lives here.
+ */
+@Slf4j
+@Component
+public class ArchiveStore {
+
+    private static final String SUFFIX = ".seg";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final ArchiveProperties properties;
+    private final List<Entry> entries = new CopyOnWriteArrayList<>();
+
+    public ArchiveStore(ArchiveProperties properties) {
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Files.createDirectories(properties.getDir());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(properties.getDir(), "hits-*" + TMP_SUFFIX)) {
+            for (Path file : files) {
+                Files.delete(file);
+                log.warn("Removed unfinished archive segment {}", file);
+            }
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(properties.getDir(), "hits-*" + SUFFIX)) {
+            for (Path file : files) {
+                entries.add(new Entry(month(file), new ArchiveSegment(file)));
+            }
+        }
+        log.info("Opened {} archive segments in {}", entries.size(), properties.getDir());
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    @Nullable
+    public LocalDateTime archivedUntil() {
+        return entries.stream()
+                .map(Entry::getMonth)
+                .max(YearMonth::compareTo)
+                .map(month -> month.plusMonths(1).atDay(1).atStartOfDay())
+                .orElse(null);
+    }
+
+    public boolean contains(YearMonth month) {
+        return entries.stream().anyMatch(entry -> entry.getMonth().equals(month));
+    }
+
+    /**
+     * Streams a new segment for the month into a temporary file, then moves it in place. Inside a transaction the
+     * segment is served only after the transaction commits, so it is never read together with the raw hits it
+     * copies, and deleted if the transaction does not commit. A month archived before a crash stays below
+     * {@link #archivedUntil()}, where queries never read raw hits, so it is not counted twice either.
+     */
+    public void append(YearMonth month, Consumer<ArchiveSegmentWriter> source) {
+        try {
+            Path tmp = Files.createTempFile(properties.getDir(), "hits-", TMP_SUFFIX);
+            long rows;
+            try (ArchiveSegmentWriter writer = new ArchiveSegmentWriter(tmp)) {
+                source.accept(writer);
+                writer.finish();
+                rows = writer.size();
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(tmp);
+                throw e;
+            }
+            if (rows == 0) {
+                Files.delete(tmp);
+                return;
+            }
+            Path file = properties.getDir().resolve("hits-" + month + "-" + System.currentTimeMillis() + SUFFIX);
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            Entry entry = new Entry(month, new ArchiveSegment(file));
+            log.info("Archived {} hits of {} to {}", rows, month, file);
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                entries.add(entry);
+                return;
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        entries.add(entry);
+                    } else {
+                        delete(entry);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void forEach(Segment segment, @Nullable Collection<String> uris, ArchiveSegment.HitConsumer consumer) {
+        for (Entry entry : entries) {
+            entry.getSegment().forEach(segment.getFrom(), segment.getTo(), segment.isToInclusive(), uris, consumer);
+        }
+    }
+
+    public Map<AppUri, Long> countHits(List<Segment> segments, @Nullable Collection<String> uris) {
+        Map<AppUri, Long> counts = new HashMap<>();
+        for (Segment segment : segments) {
+            if (segment.isArchived()) {
+                forEach(segment, uris, (app, uri, ip, weight) ->
+                        counts.merge(new AppUri(app, uri), (long) weight, Long::sum));
+            }
+        }
+        return counts;
+    }
+
+    private static void delete(Entry entry) {
+        try {
+            Files.deleteIfExists(entry.getSegment().getFile());
+            log.info("Removed archive segment {}", entry.getSegment().getFile());
+        } catch (IOException e) {
+            log.error("Failed to remove archive segment {}", entry.getSegment().getFile(), e);
+        }
+    }
+
+    private static YearMonth month(Path file) {
+        return YearMonth.parse(file.getFileName().toString().substring("hits-".length(), "hits-yyyy-MM".length()));
+    }
+
+    @Value
+    private static class Entry {
+        YearMonth month;
+        ArchiveSegment segment;
+    }
+}
@@ -0,0 +1,32 @@
+package ru.practicum.stats.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.practicum.stats.admission.AdmissionInterceptor;
+import ru.practicum.stats.admission.AdmissionProperties;
+import ru.practicum.common.codec.StatsBinaryHttpMessageConverter;
+
+import java.util.List;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final AdmissionProperties admissionProperties;
+    private final AdmissionInterceptor admissionInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (admissionProperties.isEnabled()) {
+            registry.addInterceptor(admissionInterceptor).addPathPatterns("/hit", "/hits");
+        }
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new StatsBinaryHttpMessageConverter());
+    }
+}
@@ -1,16 +1,31 @@
 package ru.practicum.stats.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.common.codec.StatsBinaryCodec;
 import ru.practicum.common.dto.EndpointHit;
+import ru.practicum.common.dto.LatencyStats;
 import ru.practicum.common.dto.StatsDto;
+import ru.practicum.common.dto.StatsQueryRequest;
+import ru.practicum.common.dto.StatsRangeResult;
 import ru.practicum.common.dto.ViewStats;
+import ru.practicum.common.dto.ViewStatsSeries;
 import ru.practicum.stats.service.StatsService;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -20,6 +35,7 @@ import java.util.List;
 public class StatsController {
 
     private final StatsService statsService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/hit")
     @ResponseStatus(code = HttpStatus.CREATED)
@@ -28,13 +44,97 @@ public class StatsController {
         return statsService.createHit(endpointHitDto);
     }
 
+    @PostMapping(value = "/hits", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(code = HttpStatus.CREATED)
+    public void saveAll(InputStream body) throws IOException {
+        try (MappingIterator<EndpointHit> hits = objectMapper.readerFor(EndpointHit.class).readValues(body)) {
+            int saved = statsService.createHits(hits);
+            log.info("Stats server save bulk: {} hits", saved);
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof JsonProcessingException) {
+                throw (JsonProcessingException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @PostMapping(value = {"/hit", "/hits"}, consumes = StatsBinaryCodec.MEDIA_TYPE_VALUE)
+    @ResponseStatus(code = HttpStatus.CREATED)
+    public void saveAllBinary(InputStream body) throws IOException {
+        int saved = statsService.createHitDtos(StatsBinaryCodec.readHits(body));
+        log.info("Stats server save binary bulk: {} hits", saved);
+    }
+
     @GetMapping("/stats")
     public List<ViewStats> get(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
                                @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
                                @RequestParam(required = false) List<String> uris,
-                               @RequestParam(defaultValue = "false") boolean unique) {
-        log.info("Stats server get: start {}, end {}, unique {}, uris is null {}", start, end, unique, uris == null);
-        return statsService.getStats(StatsDto.builder().start(start).end(end).uris(uris).unique(unique).build());
+                               @RequestParam(defaultValue = "false") boolean unique,
+                               @RequestParam(required = false) Boolean approximate) {
+        log.info("Stats server get: start {}, end {}, unique {}, approximate {}, uris is null {}",
+                start, end, unique, approximate, uris == null);
+        return statsService.getStats(StatsDto.builder().start(start).end(end).uris(uris).unique(unique)
+                .approximate(approximate).build());
+    }
+
+    @GetMapping("/stats/top")
+    public List<ViewStats> getTop(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                                  @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                                  @RequestParam(defaultValue = "10") int k,
+                                  @RequestParam(defaultValue = "false") boolean unique) {
+        log.info("Stats server top: start {}, end {}, k {}, unique {}", start, end, k, unique);
+        return statsService.getTopStats(start, end, k, unique);
+    }
+
+    @GetMapping("/stats/series")
+    public List<ViewStatsSeries> getSeries(@RequestParam(name = "uri") List<String> uris,
+                                           @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                                           @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                                           @RequestParam(defaultValue = "hour") String interval,
+                                           @RequestParam(defaultValue = "false") boolean unique,
+                                           @RequestParam(required = false) Boolean approximate) {
+        log.info("Stats server series: uris {}, start {}, end {}, interval {}, unique {}, approximate {}",
+                uris, start, end, interval, unique, approximate);
+        return statsService.getSeries(uris, start, end, interval, unique, approximate);
+    }
+
+    @PostMapping("/stats/query")
+    public List<StatsRangeResult> query(@RequestBody @Valid StatsQueryRequest request) {
+        log.info("Stats server query: {} ranges, unique {}", request.getRanges().size(), request.isUnique());
+        return statsService.queryStats(request);
+    }
+
+    @GetMapping("/stats/latency")
+    public List<LatencyStats> getLatency(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                                         @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                                         @RequestParam(required = false) List<String> uris) {
+        log.info("Stats server latency: start {}, end {}, uris {}", start, end, uris);
+        return statsService.getLatency(start, end, uris);
+    }
+
+    @GetMapping(value = "/stats", params = "stream=true")
+    public void stream(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                       @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                       @RequestParam(required = false) List<String> uris,
+                       @RequestParam(defaultValue = "false") boolean unique,
+                       @RequestParam(required = false) Boolean approximate,
+                       HttpServletResponse response) throws IOException {
+        log.info("Stats server stream: start {}, end {}, unique {}, approximate {}, uris is null {}",
+                start, end, unique, approximate, uris == null);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        SequenceWriter writer = objectMapper.writerFor(ViewStats.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n")
+                .writeValues(response.getOutputStream());
+        statsService.streamStats(StatsDto.builder().start(start).end(end).uris(uris).unique(unique)
+                .approximate(approximate).build(), viewStats -> {
+                    try {
+                        writer.write(viewStats);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        writer.close();
     }
 
 }
\ No newline at end of file
@@ -1,12 +1,16 @@
 package ru.practicum.stats.exception;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -36,6 +40,20 @@ public class ErrorHandler {
         );
     }
 
+    @ExceptionHandler({JsonProcessingException.class, RuntimeJsonMappingException.class})
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleJsonException(final Exception ex, final WebRequest request) {
+        String path = request.getDescription(false).substring(4);
+        log.error("[INVALID JSON]: Path: {}; Message: {}.", path, ex.getMessage());
+
+        return new ErrorResponse(
+                LocalDateTime.now().toString(),
+                HttpStatus.BAD_REQUEST.value(),
+                path,
+                ex.getMessage()
+        );
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleMissingRequestParamException(
@@ -72,6 +90,36 @@ public class ErrorHandler {
         );
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleIngestQueueFullException(final IngestQueueFullException ex, final WebRequest request) {
+        String path = request.getDescription(false).substring(4);
+        log.warn("[INGEST OVERLOAD]: Path: {}; Message: {}.", path, ex.getMessage());
+
+        return new ErrorResponse(
+                LocalDateTime.now().toString(),
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                path,
+                ex.getMessage()
+        );
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<ErrorResponse> handleIngestOverloadedException(final IngestOverloadedException ex,
+                                                                         final WebRequest request) {
+        String path = request.getDescription(false).substring(4);
+        log.debug("[INGEST OVERLOAD]: Path: {}; Message: {}.", path, ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(new ErrorResponse(
+                        LocalDateTime.now().toString(),
+                        HttpStatus.TOO_MANY_REQUESTS.value(),
+                        path,
+                        ex.getMessage()
+                ));
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleThrowable(final Throwable ex, final WebRequest request) {
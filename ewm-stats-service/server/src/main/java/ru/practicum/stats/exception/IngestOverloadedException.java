@@ -0,0 +1,16 @@
+package ru.practicum.stats.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+@Getter
+public class IngestOverloadedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public IngestOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.stats.exception;
+
+public class IngestQueueFullException extends RuntimeException {
+    public IngestQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,235 @@
+package ru.practicum.stats.hot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.stats.ingest.HitBatchListener;
+import ru.practicum.stats.model.App;
+import ru.practicum.stats.model.AppUri;
+import ru.practicum.stats.model.IpAddress;
+import ru.practicum.stats.model.Stats;
+import ru.practicum.stats.repository.RawHitRepository;
+import ru.practicum.stats.rollup.BucketLevel;
+import ru.practicum.stats.rollup.RangePlan.Segment;
+import ru.practicum.stats.service.IpResolver;
+import ru.practicum.stats.sketch.RoaringBitmap;
+import ru.practicum.stats.sketch.SpaceSaving;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Per-minute hit counts and unique IP sets of the last {@code stats.hot.window}, split into stripes by
+ * {@code (app, uri)} so writers only contend per stripe, and with {@code stats.top.enabled} a heavy-hitters sketch
+ * of each minute for top-K candidates. Rebuilt from raw hits on startup and updated by the thread that stores the
+ * hits as soon as their transaction commits, so the minutes served from memory never miss a committed hit and never
+ * count a rolled back one.
+ */
+@Slf4j
+@Component
+public class HotWindow implements HitBatchListener {
+
+    private static final int REBUILD_BATCH = 10_000;
+
+    private final RawHitRepository rawHitRepository;
+    private final IpResolver ipResolver;
+    private final boolean enabled;
+    private final Duration window;
+    private final Stripe[] stripes;
+    private final boolean topEnabled;
+    private final int topCapacity;
+    private final Map<Long, SpaceSaving> topByMinute = new ConcurrentHashMap<>();
+
+    public HotWindow(RawHitRepository rawHitRepository, IpResolver ipResolver,
+                     @Value("${stats.hot.enabled:false}") boolean enabled,
+                     @Value("${stats.hot.window:48h}") Duration window,
+                     @Value("${stats.hot.stripes:16}") int stripes,
+                     @Value("${stats.top.enabled:false}") boolean topEnabled,
+                     @Value("${stats.top.capacity:256}") int topCapacity) {
+        this.rawHitRepository = rawHitRepository;
+        this.ipResolver = ipResolver;
+        this.enabled = enabled;
+        this.window = window;
+        this.topEnabled = topEnabled;
+        this.topCapacity = topCapacity;
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime from = start();
+        List<Stats> batch = new ArrayList<>(REBUILD_BATCH);
+        int[] total = {0};
+        rawHitRepository.forEachHitSince(from, (app, uri, ip, time, weight) -> {
+            batch.add(Stats.builder().app(new App(app)).uri(uri).ip(ip).timestamp(time).weight(weight).build());
+            if (batch.size() == REBUILD_BATCH) {
+                apply(batch, ipResolver.resolve(ips(batch)));
+                total[0] += batch.size();
+                batch.clear();
+            }
+        });
+        apply(batch, ipResolver.resolve(ips(batch)));
+        total[0] += batch.size();
+        log.info("Hot window rebuilt from {} hits since {}", total[0], from);
+    }
+
+    /**
+     * First minute that is fully held in memory, or {@code null} if the hot window is disabled.
+     */
+    @Nullable
+    public LocalDateTime start() {
+        return enabled ? BucketLevel.MINUTE.ceil(LocalDateTime.now().minus(window)) : null;
+    }
+
+    @Override
+    public void onHits(List<Stats> hits) {
+        if (!enabled) {
+            return;
+        }
+        Map<IpAddress, Integer> ipIds = ipResolver.resolve(ips(hits));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Stats> committed = new ArrayList<>(hits);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(committed, ipIds);
+                }
+            });
+        } else {
+            apply(hits, ipIds);
+        }
+    }
+
+    public Map<AppUri, Long> countHits(Segment segment, @Nullable Collection<String> uriFilter) {
+        Set<String> uris = uriFilter == null ? null : new HashSet<>(uriFilter);
+        long from = minute(segment.getFrom());
+        long to = minute(segment.getTo());
+        Map<AppUri, Long> counts = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.series.forEach((key, series) -> {
+                    if (uris == null || uris.contains(key.getUri())) {
+                        long count = series.count(from, to);
+                        if (count > 0) {
+                            counts.put(key, count);
+                        }
+                    }
+                });
+            }
+        }
+        return counts;
+    }
+
+    public void collectIps(Segment segment, @Nullable Collection<String> uriFilter,
+                           Map<AppUri, RoaringBitmap> target) {
+        Set<String> uris = uriFilter == null ? null : new HashSet<>(uriFilter);
+        long from = minute(segment.getFrom());
+        long to = minute(segment.getTo());
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.series.forEach((key, series) -> {
+                    if (uris == null || uris.contains(key.getUri())) {
+                        RoaringBitmap ips = new RoaringBitmap();
+                        series.collectIps(from, to, ips);
+                        if (ips.cardinality() > 0) {
+                            target.computeIfAbsent(key, k -> new RoaringBitmap()).merge(ips);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Merges the heavy-hitters sketches of the minutes the segment touches into {@code target}. Partial minutes at
+     * the edges are taken whole, which is fine for picking candidates.
+     */
+    public void mergeTopUris(Segment segment, SpaceSaving target) {
+        long first = minute(segment.getFrom());
+        long last = segment.isToInclusive() ? minute(segment.getTo()) + 1
+                : minute(BucketLevel.MINUTE.ceil(segment.getTo()));
+        topByMinute.forEach((minute, sketch) -> {
+            if (minute >= first && minute < last) {
+                synchronized (sketch) {
+                    target.merge(sketch);
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${stats.hot.evict-interval:60000}")
+    public void evict() {
+        if (!enabled) {
+            return;
+        }
+        long from = minute(start());
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.series.values().removeIf(series -> series.evictBefore(from));
+            }
+        }
+        topByMinute.keySet().removeIf(minute -> minute < from);
+    }
+
+    private void apply(List<Stats> hits, Map<IpAddress, Integer> ipIds) {
+        long from = minute(start());
+        Map<Long, Map<String, Long>> uriCounts = new HashMap<>();
+        for (Stats hit : hits) {
+            long minute = minute(hit.getTimestamp());
+            if (minute < from) {
+                continue;
+            }
+            AppUri key = new AppUri(hit.getApp().getName(), hit.getUri());
+            Stripe stripe = stripes[Math.floorMod(key.hashCode(), stripes.length)];
+            synchronized (stripe) {
+                stripe.series.computeIfAbsent(key, k -> new MinuteSeries()).add(minute, ipIds.get(hit.getIp()), hit.getWeight());
+            }
+            if (topEnabled && hit.getWeight() > 0) {
+                uriCounts.computeIfAbsent(minute, m -> new HashMap<>())
+                        .merge(hit.getUri(), (long) hit.getWeight(), Long::sum);
+            }
+        }
+        uriCounts.forEach((minute, counts) -> {
+            SpaceSaving sketch = topByMinute.computeIfAbsent(minute, m -> new SpaceSaving(topCapacity));
+            synchronized (sketch) {
+                counts.entrySet().stream()
+                        .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
+                        .forEach(entry -> sketch.offer(entry.getKey(), entry.getValue()));
+            }
+        });
+    }
+
+    private static List<IpAddress> ips(List<Stats> hits) {
+        return hits.stream().map(Stats::getIp).distinct().collect(Collectors.toList());
+    }
+
+    private static long minute(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static final class Stripe {
+        private final Map<AppUri, MinuteSeries> series = new HashMap<>();
+    }
+}
@@ -0,0 +1,111 @@
+package ru.practicum.stats.hot;
+
+import ru.practicum.stats.sketch.RoaringBitmap;
+
+import java.util.Arrays;
+
+/**
+ * Hit counts and IP id sets of one {@code (app, uri)} keyed by epoch minute, in an open-addressing table
+ * over primitive arrays.
+ */
+class MinuteSeries {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] minutes;
+    private long[] counts;
+    private RoaringBitmap[] ips;
+    private int size;
+
+    MinuteSeries() {
+        allocate(8);
+    }
+
+    void add(long minute, int ipId, int weight) {
+        int slot = slot(minute);
+        if (minutes[slot] == EMPTY) {
+            if ((size + 1) * 2 > minutes.length) {
+                rehash(minutes.length * 2, Long.MIN_VALUE);
+                slot = slot(minute);
+            }
+            minutes[slot] = minute;
+            ips[slot] = new RoaringBitmap();
+            size++;
+        }
+        counts[slot] += weight;
+        ips[slot].add(ipId);
+    }
+
+    long count(long fromMinute, long toMinute) {
+        long total = 0;
+        for (int i = 0; i < minutes.length; i++) {
+            if (minutes[i] != EMPTY && minutes[i] >= fromMinute && minutes[i] < toMinute) {
+                total += counts[i];
+            }
+        }
+        return total;
+    }
+
+    void collectIps(long fromMinute, long toMinute, RoaringBitmap target) {
+        for (int i = 0; i < minutes.length; i++) {
+            if (minutes[i] != EMPTY && minutes[i] >= fromMinute && minutes[i] < toMinute) {
+                target.merge(ips[i]);
+            }
+        }
+    }
+
+    /**
+     * Drops minutes before the given one and returns whether the series is empty afterwards.
+     */
+    boolean evictBefore(long minute) {
+        int capacity = minutes.length;
+        while (capacity > 8 && live(minute) * 4 < capacity) {
+            capacity /= 2;
+        }
+        rehash(capacity, minute);
+        return size == 0;
+    }
+
+    private int live(long fromMinute) {
+        int live = 0;
+        for (long m : minutes) {
+            if (m != EMPTY && m >= fromMinute) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    private int slot(long minute) {
+        int mask = minutes.length - 1;
+        int slot = Long.hashCode(minute * 0x9E3779B97F4A7C15L) & mask;
+        while (minutes[slot] != EMPTY && minutes[slot] != minute) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity, long fromMinute) {
+        long[] oldMinutes = minutes;
+        long[] oldCounts = counts;
+        RoaringBitmap[] oldIps = ips;
+        allocate(capacity);
+        for (int i = 0; i < oldMinutes.length; i++) {
+            if (oldMinutes[i] != EMPTY && oldMinutes[i] >= fromMinute) {
+                int slot = slot(oldMinutes[i]);
+                minutes[slot] = oldMinutes[i];
+                counts[slot] = oldCounts[i];
+                ips[slot] = oldIps[i];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        minutes = new long[capacity];
+        Arrays.fill(minutes, EMPTY);
+        counts = new long[capacity];
+        ips = new RoaringBitmap[capacity];
+        size = 0;
+    }
+}
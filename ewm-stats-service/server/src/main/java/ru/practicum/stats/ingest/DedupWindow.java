@@ -0,0 +1,68 @@
+package ru.practicum.stats.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.model.IpAddress;
+import ru.practicum.stats.model.Stats;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Suppresses hits that repeat an {@code (app, uri, ip)} accepted less than {@code stats.ingest.dedup-window}
+ * earlier in request time, so refresh and bot bursts are stored once. Recent keys live in a bounded LRU map; a key
+ * evicted from it is simply accepted again. Suppressed hits are counted in {@code stats.ingest.deduplicated}.
+ */
+@Component
+public class DedupWindow {
+
+    private final Duration window;
+    private final Map<Key, LocalDateTime> lastAccepted;
+    private final Counter deduplicatedCounter;
+
+    public DedupWindow(IngestProperties properties, MeterRegistry meterRegistry) {
+        this.window = properties.getDedupWindow();
+        int cacheSize = properties.getDedupCacheSize();
+        this.lastAccepted = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, LocalDateTime> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        this.deduplicatedCounter = Counter.builder("stats.ingest.deduplicated")
+                .description("Hits dropped as repeats inside the dedup window")
+                .register(meterRegistry);
+    }
+
+    public boolean accept(Stats hit) {
+        if (window.isZero()) {
+            return true;
+        }
+        Key key = new Key(hit.getApp().getId(), hit.getUri(), hit.getIp());
+        LocalDateTime time = hit.getTimestamp();
+        boolean[] accepted = {true};
+        lastAccepted.compute(key, (k, last) -> {
+            if (last != null && Duration.between(last, time).abs().compareTo(window) < 0) {
+                accepted[0] = false;
+                return last;
+            }
+            return time;
+        });
+        if (!accepted[0]) {
+            deduplicatedCounter.increment();
+        }
+        return accepted[0];
+    }
+
+    @Value
+    private static class Key {
+        Long appId;
+        String uri;
+        IpAddress ip;
+    }
+}
@@ -0,0 +1,30 @@
+package ru.practicum.stats.ingest;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.model.Stats;
+
+import java.util.List;
+
+/**
+ * Stores hits and updates rollups and sketches in the caller's transaction, so a committed hit is counted by every
+ * derived read as soon as the request returns.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "stats.ingest", name = "mode", havingValue = "sync", matchIfMissing = true)
+public class DirectHitIngestor implements HitIngestor {
+
+    private final HitWriter hitWriter;
+
+    @Override
+    public void ingest(Stats hit) {
+        hitWriter.write(List.of(hit));
+    }
+
+    @Override
+    public void ingestAll(List<Stats> hits) {
+        hitWriter.write(hits);
+    }
+}
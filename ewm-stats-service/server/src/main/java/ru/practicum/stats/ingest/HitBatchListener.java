@@ -0,0 +1,14 @@
+package ru.practicum.stats.ingest;
+
+import ru.practicum.stats.model.Stats;
+
+import java.util.List;
+
+public interface HitBatchListener {
+
+    /**
+     * Receives every accepted hit, including ones that sampling left out; those carry weight 0, may or may not
+     * have a raw row, and must not be counted as hits.
+     */
+    void onHits(List<Stats> hits);
+}
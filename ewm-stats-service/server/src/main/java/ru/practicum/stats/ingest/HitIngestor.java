@@ -0,0 +1,20 @@
+package ru.practicum.stats.ingest;
+
+import ru.practicum.stats.model.Stats;
+
+import java.util.List;
+
+public interface HitIngestor {
+
+    void ingest(Stats hit);
+
+    void ingestAll(List<Stats> hits);
+
+    /**
+     * Whether hits are written to the database within the caller's transaction. Ingestors that only accept hits
+     * and write them later return {@code false}, so callers need not hold a connection.
+     */
+    default boolean writesInCallerTransaction() {
+        return true;
+    }
+}
@@ -0,0 +1,309 @@
+package ru.practicum.stats.ingest;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.stats.exception.IngestQueueFullException;
+import ru.practicum.stats.model.App;
+import ru.practicum.stats.model.IpAddress;
+import ru.practicum.stats.model.Stats;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of accepted hits in preallocated, memory-mapped segment files named
+ * {@code wal-<sequence>.log}. Each record is its payload length, the CRC32 of the payload and the payload itself:
+ * request time, app, uri, packed ip and the request duration in microseconds, or -1 if none. A zero length marks the end of a segment. On open the last segment is
+ * scanned up to the first torn record and the rest of it is zeroed, so appends continue from a clean tail.
+ * The {@code checkpoint} file holds the position up to which hits have reached the database; segments before it
+ * are deleted.
+ */
+@Slf4j
+public class HitLog {
+
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    private static final int HEADER = 8;
+
+    private final Path dir;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final boolean sync;
+    private final ConcurrentNavigableMap<Long, MappedByteBuffer> segments = new ConcurrentSkipListMap<>();
+    private volatile Position end;
+    private volatile Position checkpoint;
+
+    public HitLog(Path dir, int segmentSize, int maxSegments, boolean sync) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.sync = sync;
+        Files.createDirectories(dir);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                segments.put(sequence(file), map(file));
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.put(1L, map(file(1)));
+        }
+        long last = segments.lastKey();
+        this.end = new Position(last, recover(segments.get(last)));
+        Position saved = readCheckpoint();
+        this.checkpoint = saved == null || saved.getSegment() < segments.firstKey() || saved.compareTo(end) > 0
+                ? new Position(segments.firstKey(), 0) : saved;
+        log.info("Opened hit log in {}: {} segments, replaying from {} to {}", dir, segments.size(), checkpoint, end);
+    }
+
+    /**
+     * Appends the hits; they are readable once this returns. Without {@code sync} they survive a crash of the
+     * process but not of the machine.
+     */
+    public synchronized void append(List<Stats> hits) {
+        List<byte[]> payloads = new ArrayList<>(hits.size());
+        long segment = end.getSegment();
+        int offset = end.getOffset();
+        for (Stats hit : hits) {
+            byte[] payload = encode(hit);
+            if (HEADER + payload.length > segmentSize) {
+                throw new IllegalArgumentException("Hit does not fit into a hit log segment: " + hit.getUri());
+            }
+            if (offset + HEADER + payload.length > segmentSize) {
+                segment++;
+                offset = 0;
+            }
+            payloads.add(payload);
+            offset += HEADER + payload.length;
+        }
+        if (segments.size() + segment - end.getSegment() > maxSegments) {
+            throw new IngestQueueFullException("Hit log is full: " + segments.size() + " segments in " + dir);
+        }
+        segment = end.getSegment();
+        offset = end.getOffset();
+        MappedByteBuffer buffer = segments.get(segment);
+        for (byte[] payload : payloads) {
+            if (offset + HEADER + payload.length > segmentSize) {
+                buffer.force();
+                segment++;
+                offset = 0;
+                buffer = map(file(segment));
+                segments.put(segment, buffer);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            buffer.duplicate().position(offset + HEADER).put(payload);
+            buffer.putInt(offset + 4, (int) crc.getValue());
+            buffer.putInt(offset, payload.length);
+            offset += HEADER + payload.length;
+        }
+        if (sync) {
+            buffer.force();
+        }
+        end = new Position(segment, offset);
+    }
+
+    /**
+     * Reads up to {@code max} hits starting at {@code from}. Apps carry only their names.
+     */
+    public Batch read(Position from, int max) {
+        List<Stats> hits = new ArrayList<>();
+        Position limit = end;
+        long segment = from.getSegment();
+        int offset = from.getOffset();
+        while (hits.size() < max && (segment < limit.getSegment() || offset < limit.getOffset())) {
+            ByteBuffer buffer = segments.get(segment).duplicate();
+            int length = offset + HEADER <= segmentSize ? buffer.getInt(offset) : 0;
+            byte[] payload = segment < limit.getSegment() ? valid(buffer, offset, length) : payload(buffer, offset, length);
+            if (payload == null) {
+                if (length != 0) {
+                    log.warn("Skipping torn record at {} in segment {}", offset, segment);
+                }
+                segment++;
+                offset = 0;
+                continue;
+            }
+            hits.add(decode(payload));
+            offset += HEADER + length;
+        }
+        return new Batch(hits, new Position(segment, offset));
+    }
+
+    public Position checkpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Records that everything before {@code position} is in the database and deletes the segments before it.
+     */
+    public void checkpoint(Position position) {
+        try {
+            Path tmp = Files.createTempFile(dir, "checkpoint-", ".tmp");
+            Files.writeString(tmp, position.getSegment() + ":" + position.getOffset());
+            Files.move(tmp, dir.resolve("checkpoint"), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        checkpoint = position;
+        for (Map.Entry<Long, MappedByteBuffer> entry : segments.headMap(position.getSegment()).entrySet()) {
+            segments.remove(entry.getKey());
+            try {
+                Files.deleteIfExists(file(entry.getKey()));
+            } catch (IOException e) {
+                log.error("Failed to delete hit log segment {}", entry.getKey(), e);
+            }
+        }
+    }
+
+    /**
+     * Returns how many bytes of the log are not yet in the database.
+     */
+    public long pendingBytes() {
+        Position from = checkpoint;
+        Position to = end;
+        return (to.getSegment() - from.getSegment()) * segmentSize + to.getOffset() - from.getOffset();
+    }
+
+    public void close() {
+        segments.values().forEach(MappedByteBuffer::force);
+    }
+
+    private int recover(MappedByteBuffer buffer) {
+        int offset = 0;
+        while (offset + HEADER <= segmentSize) {
+            int length = buffer.getInt(offset);
+            if (valid(buffer, offset, length) == null) {
+                break;
+            }
+            offset += HEADER + length;
+        }
+        if (offset + HEADER <= segmentSize && buffer.getInt(offset) != 0) {
+            log.warn("Truncating torn hit log tail at {}", offset);
+        }
+        for (int i = offset; i < segmentSize; i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+        return offset;
+    }
+
+    private byte[] valid(ByteBuffer buffer, int offset, int length) {
+        if (length <= 0 || length > segmentSize - offset - HEADER) {
+            return null;
+        }
+        byte[] payload = payload(buffer, offset, length);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == buffer.getInt(offset + 4) ? payload : null;
+    }
+
+    private static byte[] payload(ByteBuffer buffer, int offset, int length) {
+        byte[] payload = new byte[length];
+        buffer.duplicate().position(offset + HEADER).get(payload);
+        return payload;
+    }
+
+    private static byte[] encode(Stats hit) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(hit.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(hit.getTimestamp().getNano());
+            out.writeUTF(hit.getApp().getName());
+            out.writeUTF(hit.getUri());
+            byte[] ip = hit.getIp().toBytes();
+            out.writeByte(ip.length);
+            out.write(ip);
+            out.writeLong(hit.getDurationMicros() == null ? -1 : hit.getDurationMicros());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Stats decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+        String app = string(buffer);
+        String uri = string(buffer);
+        byte[] ip = new byte[buffer.get()];
+        buffer.get(ip);
+        long duration = buffer.remaining() >= Long.BYTES ? buffer.getLong() : -1;
+        return Stats.builder().app(new App(app)).uri(uri).ip(IpAddress.fromBytes(ip)).timestamp(timestamp)
+                .durationMicros(duration < 0 ? null : duration).build();
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Position readCheckpoint() throws IOException {
+        Path file = dir.resolve("checkpoint");
+        if (!Files.exists(file)) {
+            return null;
+        }
+        String[] parts = Files.readString(file).trim().split(":");
+        return new Position(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+    }
+
+    private MappedByteBuffer map(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path file(long sequence) {
+        return dir.resolve(String.format("%s%020d%s", PREFIX, sequence, SUFFIX));
+    }
+
+    private static long sequence(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    @Value
+    public static class Position implements Comparable<Position> {
+        long segment;
+        int offset;
+
+        @Override
+        public int compareTo(Position other) {
+            int bySegment = Long.compare(segment, other.segment);
+            return bySegment != 0 ? bySegment : Integer.compare(offset, other.offset);
+        }
+
+        @Override
+        public String toString() {
+            return segment + ":" + offset;
+        }
+    }
+
+    @Value
+    public static class Batch {
+        List<Stats> hits;
+        Position next;
+    }
+}
@@ -0,0 +1,128 @@
+package ru.practicum.stats.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.model.IpAddress;
+import ru.practicum.stats.model.Stats;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Adaptive per-uri sampling. Once a uri received more than {@code stats.ingest.sampling-threshold} hits in the
+ * previous second, each of its hits is kept with probability {@code 1/N}, where {@code N} is that rate over the
+ * threshold capped at {@code sampling-max-factor}, and a kept hit gets weight {@code N}, so summed weights estimate
+ * the hit count without bias. Hits that are not kept get weight 0 and still reach the listeners, so the hot window,
+ * bitmaps and HLL sketches see every visitor, and are not stored: with {@code stats.bitmap.enabled} or
+ * {@code stats.hll.enabled} unique counts are then read from those sketches only (see {@link #keepsEveryVisitor}).
+ * Without either sketch a weight 0 hit is stored, unless a hit of the same ip on the same app and uri was already
+ * stored for that second, so unique counts read from raw rows stay exact at the one second resolution of stats
+ * queries. Rates and stored keys are tracked in bounded LRU sets; a key that fell out of its set only costs an extra
+ * weight 0 row.
+ */
+@Component
+public class HitSampler {
+
+    private final int threshold;
+    private final int maxFactor;
+    private final boolean storesVisitors;
+    private final Map<String, Rate> rates;
+    private final Map<VisitorSecond, Boolean> stored;
+    private final Counter sampledOutCounter;
+
+    public HitSampler(IngestProperties properties, MeterRegistry meterRegistry,
+                      @Value("${stats.bitmap.enabled:false}") boolean bitmapEnabled,
+                      @Value("${stats.hll.enabled:false}") boolean hllEnabled) {
+        this.threshold = properties.getSamplingThreshold();
+        this.maxFactor = properties.getSamplingMaxFactor();
+        this.storesVisitors = !bitmapEnabled && !hllEnabled;
+        int cacheSize = properties.getSamplingCacheSize();
+        this.rates = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Rate> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        int visitorCacheSize = properties.getSamplingVisitorCacheSize();
+        this.stored = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<VisitorSecond, Boolean> eldest) {
+                return size() > visitorCacheSize;
+            }
+        });
+        this.sampledOutCounter = Counter.builder("stats.ingest.sampled-out")
+                .description("Hits left out of raw storage by adaptive sampling")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return threshold > 0;
+    }
+
+    /**
+     * Whether raw rows hold every visitor, so unique counts may be read from them.
+     */
+    public boolean keepsEveryVisitor() {
+        return !isEnabled() || storesVisitors;
+    }
+
+    /**
+     * Sets the weight of every hit and returns the ones to store: all kept hits and, without unique sketches, the
+     * first weight 0 hit of each ip, uri and second.
+     */
+    public List<Stats> sample(List<Stats> hits) {
+        if (!isEnabled()) {
+            return hits;
+        }
+        long second = System.currentTimeMillis() / 1000;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Stats> kept = new ArrayList<>(hits.size());
+        int sampledOut = 0;
+        for (Stats hit : hits) {
+            int factor = rates.computeIfAbsent(hit.getUri(), uri -> new Rate()).record(second);
+            int weight = factor <= 1 ? 1 : random.nextInt(factor) == 0 ? factor : 0;
+            hit.setWeight(weight);
+            boolean first = storesVisitors && stored.put(new VisitorSecond(hit.getApp().getName(), hit.getUri(),
+                    hit.getIp(), hit.getTimestamp().toEpochSecond(ZoneOffset.UTC)), Boolean.TRUE) == null;
+            if (weight > 0 || first) {
+                kept.add(hit);
+            }
+            if (weight == 0) {
+                sampledOut++;
+            }
+        }
+        sampledOutCounter.increment(sampledOut);
+        return kept;
+    }
+
+    private final class Rate {
+        private long second;
+        private int current;
+        private int previous;
+
+        synchronized int record(long now) {
+            if (now != second) {
+                previous = now == second + 1 ? current : 0;
+                current = 0;
+                second = now;
+            }
+            current++;
+            return previous <= threshold ? 1 : Math.min(maxFactor, previous / threshold);
+        }
+    }
+
+    @lombok.Value
+    private static class VisitorSecond {
+        String app;
+        String uri;
+        IpAddress ip;
+        long second;
+    }
+}
@@ -0,0 +1,32 @@
+package ru.practicum.stats.ingest;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.stats.model.Stats;
+import ru.practicum.stats.repository.HitBatchRepository;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class HitWriter {
+
+    private final HitBatchRepository hitBatchRepository;
+    private final HitSampler hitSampler;
+    private final List<HitBatchListener> listeners;
+
+    /**
+     * Stores the hits and updates rollups and sketches in the caller's transaction, so the derived data never
+     * drifts from the raw rows. Fails without a transaction rather than commit the rollups on their own.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void write(List<Stats> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        hitBatchRepository.insertAll(hitSampler.sample(hits));
+        listeners.forEach(listener -> listener.onHits(hits));
+    }
+}
@@ -0,0 +1,45 @@
+package ru.practicum.stats.ingest;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "stats.ingest")
+public class IngestProperties {
+
+    private IngestMode mode = IngestMode.SYNC;
+
+    private int batchSize = 500;
+
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    private int queueCapacity = 10_000;
+
+    private Duration dedupWindow = Duration.ZERO;
+
+    private int dedupCacheSize = 100_000;
+
+    private Path walDir = Path.of("wal");
+
+    private DataSize walSegmentSize = DataSize.ofMegabytes(64);
+
+    private DataSize walMaxSize = DataSize.ofGigabytes(1);
+
+    private boolean walSync;
+
+    private int samplingThreshold;
+
+    private int samplingMaxFactor = 100;
+
+    private int samplingCacheSize = 10_000;
+
+    private int samplingVisitorCacheSize = 100_000;
+}
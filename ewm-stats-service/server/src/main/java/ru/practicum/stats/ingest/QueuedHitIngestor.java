@@ -0,0 +1,195 @@
+package ru.practicum.stats.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.exception.IngestQueueFullException;
+import ru.practicum.stats.model.Stats;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acknowledges hits once they are queued in memory and writes them in batches on a background thread. Queue
+ * capacity is reserved for a whole request up front, so a request is either queued entirely or rejected, and is
+ * given back only when its hits are written or dropped. A batch that fails is retried with backoff; a batch
+ * rejected by a constraint is written hit by hit so only the offending hits are dropped. Hits still queued when
+ * the server stops are written once more and lost if that fails.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "stats.ingest", name = "mode", havingValue = "async")
+public class QueuedHitIngestor implements HitIngestor {
+
+    private static final long MAX_RETRY_DELAY_MILLIS = 5_000;
+
+    private final HitWriter hitWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Stats> queue = new LinkedBlockingQueue<>();
+    private final int capacity;
+    private final Semaphore free;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Timer flushTimer;
+    private final Counter flushedCounter;
+    private final Counter failedCounter;
+    private final Counter retriesCounter;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public QueuedHitIngestor(IngestProperties properties,
+                             HitWriter hitWriter,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry) {
+        this.hitWriter = hitWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.capacity = properties.getQueueCapacity();
+        this.free = new Semaphore(capacity);
+        this.batchSize = properties.getBatchSize();
+        this.flushIntervalNanos = properties.getFlushInterval().toNanos();
+        this.flushTimer = Timer.builder("stats.ingest.flush.latency")
+                .description("Time spent writing one batch of hits")
+                .register(meterRegistry);
+        this.flushedCounter = meterRegistry.counter("stats.ingest.flushed");
+        this.failedCounter = meterRegistry.counter("stats.ingest.failed");
+        this.retriesCounter = meterRegistry.counter("stats.ingest.retries");
+        Gauge.builder("stats.ingest.queue.depth", free, semaphore -> capacity - semaphore.availablePermits())
+                .description("Hits accepted but not yet written")
+                .register(meterRegistry);
+        this.writer = new Thread(this::drainLoop, "stats-hit-writer");
+        this.writer.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) + MAX_RETRY_DELAY_MILLIS + 5_000);
+    }
+
+    @Override
+    public void ingest(Stats hit) {
+        ingestAll(List.of(hit));
+    }
+
+    @Override
+    public void ingestAll(List<Stats> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        if (!free.tryAcquire(hits.size())) {
+            throw new IngestQueueFullException("Hit queue cannot take " + hits.size() + " more hits, capacity: "
+                    + capacity);
+        }
+        queue.addAll(hits);
+    }
+
+    @Override
+    public boolean writesInCallerTransaction() {
+        return false;
+    }
+
+    private void drainLoop() {
+        List<Stats> batch = new ArrayList<>(batchSize);
+        long delay = TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos);
+        while (running) {
+            try {
+                if (batch.isEmpty()) {
+                    collect(batch);
+                }
+                if (flush(batch)) {
+                    delay = TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos);
+                } else {
+                    retriesCounter.increment(batch.size());
+                    log.warn("Retrying batch of {} hits in {} ms", batch.size(), delay);
+                    Thread.sleep(delay);
+                    delay = Math.min(Math.max(delay, 1) * 2, MAX_RETRY_DELAY_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        do {
+            queue.drainTo(batch, batchSize - batch.size());
+            if (!flush(batch)) {
+                drop(batch, "server is stopping");
+            }
+        } while (!queue.isEmpty());
+    }
+
+    private void collect(List<Stats> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            Stats hit = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (hit == null) {
+                return;
+            }
+            batch.add(hit);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+    }
+
+    /**
+     * Writes the batch and clears it, or keeps it for a retry and returns {@code false}.
+     */
+    private boolean flush(List<Stats> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        try {
+            flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> hitWriter.write(batch)));
+            flushedCounter.increment(batch.size());
+        } catch (DataIntegrityViolationException e) {
+            writeSeparately(batch);
+        } catch (RuntimeException e) {
+            log.warn("Failed to write batch of {} hits: {}", batch.size(), e.getMessage());
+            return false;
+        }
+        free.release(batch.size());
+        batch.clear();
+        return true;
+    }
+
+    private void writeSeparately(List<Stats> batch) {
+        for (Stats hit : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> hitWriter.write(List.of(hit)));
+                flushedCounter.increment();
+            } catch (DataIntegrityViolationException e) {
+                failedCounter.increment();
+                log.error("Dropped hit {} {} at {}: {}", hit.getApp().getName(), hit.getUri(), hit.getTimestamp(),
+                        e.getMessage());
+            }
+        }
+    }
+
+    private void drop(List<Stats> batch, String reason) {
+        failedCounter.increment(batch.size());
+        log.error("Dropped batch of {} hits, {}", batch.size(), reason);
+        free.release(batch.size());
+        batch.clear();
+    }
+}
@@ -0,0 +1,180 @@
+package ru.practicum.stats.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.model.Stats;
+import ru.practicum.stats.service.AppResolver;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Acknowledges hits once they are in the local {@link HitLog} and applies the log to the database in the
+ * background, so ingest latency does not depend on the database. Hits left unapplied by a restart are replayed
+ * from the checkpoint on startup. A batch is applied before its checkpoint is written, so a crash between the two
+ * applies that batch again.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "stats.ingest", name = "mode", havingValue = "wal")
+public class WalHitIngestor implements HitIngestor {
+
+    private static final long MAX_RETRY_DELAY_MILLIS = 5_000;
+
+    private final HitLog hitLog;
+    private final HitWriter hitWriter;
+    private final AppResolver appResolver;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final Timer flushTimer;
+    private final Counter flushedCounter;
+    private final Counter failedCounter;
+    private final Counter retriesCounter;
+    private final Object signal = new Object();
+    private final Thread applier;
+    private volatile boolean running = true;
+
+    public WalHitIngestor(IngestProperties properties,
+                          HitWriter hitWriter,
+                          AppResolver appResolver,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry) throws IOException {
+        int segmentSize = Math.toIntExact(properties.getWalSegmentSize().toBytes());
+        this.hitLog = new HitLog(properties.getWalDir(), segmentSize,
+                (int) Math.max(2, properties.getWalMaxSize().toBytes() / segmentSize), properties.isWalSync());
+        this.hitWriter = hitWriter;
+        this.appResolver = appResolver;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = properties.getBatchSize();
+        this.flushIntervalMillis = properties.getFlushInterval().toMillis();
+        this.flushTimer = Timer.builder("stats.ingest.flush.latency")
+                .description("Time spent writing one batch of hits")
+                .register(meterRegistry);
+        this.flushedCounter = meterRegistry.counter("stats.ingest.flushed");
+        this.failedCounter = meterRegistry.counter("stats.ingest.failed");
+        this.retriesCounter = meterRegistry.counter("stats.ingest.retries");
+        Gauge.builder("stats.ingest.wal.pending", hitLog, HitLog::pendingBytes)
+                .description("Bytes of logged hits not yet written to the database")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.applier = new Thread(this::applyLoop, "stats-wal-applier");
+        this.applier.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        applier.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+        applier.join(MAX_RETRY_DELAY_MILLIS + 5_000);
+        hitLog.close();
+    }
+
+    @Override
+    public void ingest(Stats hit) {
+        ingestAll(List.of(hit));
+    }
+
+    @Override
+    public void ingestAll(List<Stats> hits) {
+        hitLog.append(hits);
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    @Override
+    public boolean writesInCallerTransaction() {
+        return false;
+    }
+
+    private void applyLoop() {
+        HitLog.Position position = hitLog.checkpoint();
+        long delay = flushIntervalMillis;
+        while (running) {
+            HitLog.Batch batch = hitLog.read(position, batchSize);
+            if (batch.getHits().isEmpty()) {
+                await(flushIntervalMillis);
+                continue;
+            }
+            try {
+                List<Stats> hits = batch.getHits();
+                hits.forEach(hit -> hit.setApp(appResolver.resolve(hit.getApp().getName())));
+                try {
+                    flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> hitWriter.write(hits)));
+                    flushedCounter.increment(hits.size());
+                } catch (DataIntegrityViolationException e) {
+                    applySeparately(hits);
+                }
+                hitLog.checkpoint(batch.getNext());
+                position = batch.getNext();
+                delay = flushIntervalMillis;
+            } catch (RuntimeException e) {
+                retriesCounter.increment(batch.getHits().size());
+                log.warn("Failed to apply {} logged hits, retrying in {} ms: {}", batch.getHits().size(), delay,
+                        e.getMessage());
+                await(delay);
+                delay = Math.min(delay * 2, MAX_RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Writes the hits one by one after the batch was rejected by a constraint, dropping only the offending hits
+     * instead of retrying the batch forever. Any other failure retries the same hit, so hits already written here
+     * are not written again by a retry of the whole batch; only a stop leaves the batch to be replayed.
+     */
+    private void applySeparately(List<Stats> hits) {
+        for (Stats hit : hits) {
+            long delay = flushIntervalMillis;
+            while (true) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> hitWriter.write(List.of(hit)));
+                    flushedCounter.increment();
+                    break;
+                } catch (DataIntegrityViolationException e) {
+                    failedCounter.increment();
+                    log.error("Dropped logged hit {} {} at {}: {}", hit.getApp().getName(), hit.getUri(),
+                            hit.getTimestamp(), e.getMessage());
+                    break;
+                } catch (RuntimeException e) {
+                    if (!running) {
+                        throw e;
+                    }
+                    retriesCounter.increment();
+                    log.warn("Failed to apply logged hit, retrying in {} ms: {}", delay, e.getMessage());
+                    await(delay);
+                    delay = Math.min(delay * 2, MAX_RETRY_DELAY_MILLIS);
+                }
+            }
+        }
+    }
+
+    private void await(long millis) {
+        synchronized (signal) {
+            try {
+                signal.wait(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+    }
+}
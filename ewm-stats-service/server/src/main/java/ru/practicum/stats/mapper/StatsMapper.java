@@ -2,9 +2,14 @@ package ru.practicum.stats.mapper;
 
 
 import ru.practicum.common.dto.EndpointHit;
+import ru.practicum.common.dto.HitDto;
+import ru.practicum.common.dto.LatencyStats;
 import ru.practicum.common.dto.ViewStats;
 import ru.practicum.stats.model.App;
+import ru.practicum.stats.model.AppUri;
+import ru.practicum.stats.model.IpAddress;
 import ru.practicum.stats.model.Stats;
+import ru.practicum.stats.sketch.LatencySketch;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -22,8 +27,19 @@ public class StatsMapper {
         return Stats.builder()
                 .app(app)
                 .uri(endpointHitDto.getUri())
-                .ip(endpointHitDto.getIp())
+                .ip(IpAddress.parse(endpointHitDto.getIp()))
                 .timestamp(LocalDateTime.parse(endpointHitDto.getTimestamp(), formatter))
+                .durationMicros(endpointHitDto.getDurationMicros())
+                .build();
+    }
+
+    public static Stats toStats(HitDto hitDto, App app) {
+        return Stats.builder()
+                .app(app)
+                .uri(hitDto.getUri())
+                .ip(IpAddress.parse(hitDto.getIp()))
+                .timestamp(hitDto.getTimestamp())
+                .durationMicros(hitDto.getDurationMicros())
                 .build();
     }
 
@@ -31,8 +47,9 @@ public class StatsMapper {
         return EndpointHit.builder()
                 .app(stats.getApp().getName())
                 .uri(stats.getUri())
-                .ip(stats.getIp())
+                .ip(stats.getIp().toString())
                 .timestamp(stats.getTimestamp().toString())
+                .durationMicros(stats.getDurationMicros())
                 .build();
     }
 
@@ -44,6 +61,17 @@ public class StatsMapper {
                 .build();
     }
 
+    public static LatencyStats toLatencyStats(AppUri appUri, LatencySketch sketch) {
+        return LatencyStats.builder()
+                .app(appUri.getApp())
+                .uri(appUri.getUri())
+                .count(sketch.count())
+                .p50(sketch.quantile(0.5))
+                .p95(sketch.quantile(0.95))
+                .p99(sketch.quantile(0.99))
+                .build();
+    }
+
     public static List<ViewStats> toViewStatsDtos(List<ru.practicum.stats.model.ViewStats> viewStats) {
         return viewStats.stream().map(StatsMapper::toViewStatsDto).collect(Collectors.toList());
     }
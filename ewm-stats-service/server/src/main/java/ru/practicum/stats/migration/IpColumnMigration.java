@@ -0,0 +1,103 @@
+package ru.practicum.stats.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.model.IpAddress;
+
+import javax.annotation.PostConstruct;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts {@code ip} columns created as text into packed {@link IpAddress} bytes. Runs once on startup, before
+ * any repository reads IPs, and does nothing on a schema that is already binary. Values that are not valid
+ * addresses are kept distinct through {@link IpAddress#fromLegacy}; dictionary entries whose text differed only
+ * in formatting collapse onto the lowest id. Sketches and bitmaps written before the migration are kept as they
+ * are, so such variants still count separately in the buckets they already cover.
+ */
+@Slf4j
+@Component
+public class IpColumnMigration {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public IpColumnMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void migrate() {
+        if (isText("stats")) {
+            transactionTemplate.executeWithoutResult(status -> {
+                pack("stats");
+                swap("stats");
+            });
+        }
+        if (isText("ip_dictionary")) {
+            transactionTemplate.executeWithoutResult(status -> {
+                pack("ip_dictionary");
+                jdbcTemplate.update("DELETE FROM ip_dictionary WHERE EXISTS (SELECT 1 FROM ip_dictionary o " +
+                        "WHERE o.ip_packed = ip_dictionary.ip_packed AND o.id < ip_dictionary.id)");
+                jdbcTemplate.execute("ALTER TABLE ip_dictionary DROP CONSTRAINT IF EXISTS uq_ip_dictionary_ip");
+                swap("ip_dictionary");
+                jdbcTemplate.execute("ALTER TABLE ip_dictionary ADD CONSTRAINT uq_ip_dictionary_ip UNIQUE (ip)");
+            });
+        }
+    }
+
+    private boolean isText(String table) {
+        Integer type = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String name : List.of(table, table.toUpperCase())) {
+                try (ResultSet columns = metaData.getColumns(null, null, name, name.equals(table) ? "ip" : "IP")) {
+                    if (columns.next()) {
+                        return columns.getInt("DATA_TYPE");
+                    }
+                }
+            }
+            return null;
+        });
+        return type != null && (type == Types.VARCHAR || type == Types.CHAR || type == Types.LONGVARCHAR);
+    }
+
+    private void pack(String table) {
+        log.info("Converting {}.ip to packed bytes", table);
+        jdbcTemplate.execute("ALTER TABLE " + table + " ADD COLUMN ip_packed BYTEA");
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        int[] total = {0};
+        jdbcTemplate.query("SELECT id, ip FROM " + table, rs -> {
+            batch.add(new Object[]{IpAddress.fromLegacy(rs.getString(2)).toBytes(), rs.getLong(1)});
+            if (batch.size() == BATCH_SIZE) {
+                total[0] += flush(table, batch);
+            }
+        });
+        total[0] += flush(table, batch);
+        log.info("Converted {} rows of {}", total[0], table);
+    }
+
+    private int flush(String table, List<Object[]> batch) {
+        int size = batch.size();
+        if (size > 0) {
+            jdbcTemplate.batchUpdate("UPDATE " + table + " SET ip_packed = ? WHERE id = ?", batch);
+            batch.clear();
+        }
+        return size;
+    }
+
+    private void swap(String table) {
+        jdbcTemplate.execute("ALTER TABLE " + table + " DROP COLUMN ip");
+        jdbcTemplate.execute("ALTER TABLE " + table + " RENAME COLUMN ip_packed TO ip");
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN ip SET NOT NULL");
+    }
+}
@@ -0,0 +1,10 @@
+package ru.practicum.stats.model;
+
+import lombok.Value;
+
+@Value
+public class AppUri {
+
+    String app;
+    String uri;
+}
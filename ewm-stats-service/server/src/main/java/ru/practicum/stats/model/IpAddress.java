@@ -0,0 +1,218 @@
+package ru.practicum.stats.model;
+
+import ru.practicum.stats.sketch.Hashing;
+
+import java.util.Arrays;
+
+/**
+ * IP address in packed form: 4 bytes for IPv4, including IPv4-mapped IPv6 addresses, and 16 bytes for IPv6.
+ * Only literals are parsed, so no host name is ever resolved. {@link #toString()} gives the canonical text
+ * (dotted quad, or RFC 5952 for IPv6), which is what sketches hash.
+ */
+public final class IpAddress implements Comparable<IpAddress> {
+
+    private static final byte[] MAPPED_PREFIX = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xff, (byte) 0xff};
+
+    private final byte[] bytes;
+    private String text;
+
+    private IpAddress(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    public static IpAddress parse(String text) {
+        byte[] bytes = text.indexOf(':') < 0 ? parseIpv4(text) : parseIpv6(text);
+        if (bytes == null) {
+            throw new IllegalArgumentException("Invalid IP address: " + text);
+        }
+        return new IpAddress(compact(bytes));
+    }
+
+    public static IpAddress fromBytes(byte[] bytes) {
+        if (bytes.length != 4 && bytes.length != 16) {
+            throw new IllegalArgumentException("IP address must be 4 or 16 bytes, got " + bytes.length);
+        }
+        return new IpAddress(compact(bytes.clone()));
+    }
+
+    /**
+     * Maps text stored before addresses were validated. Unparseable values are placed in the discard-only prefix
+     * {@code 100::/64} (RFC 6666) by their hash, so they stay distinct from each other and from real addresses.
+     */
+    public static IpAddress fromLegacy(String text) {
+        try {
+            return parse(text.trim());
+        } catch (IllegalArgumentException e) {
+            byte[] bytes = new byte[16];
+            bytes[0] = 0x01;
+            long hash = Hashing.hash64(text);
+            for (int i = 0; i < 8; i++) {
+                bytes[8 + i] = (byte) (hash >>> (56 - 8 * i));
+            }
+            return new IpAddress(bytes);
+        }
+    }
+
+    public byte[] toBytes() {
+        return bytes.clone();
+    }
+
+    /**
+     * Orders as the database orders the packed bytes: unsigned, IPv4 addresses before IPv6 ones sharing a prefix.
+     */
+    @Override
+    public int compareTo(IpAddress other) {
+        return Arrays.compareUnsigned(bytes, other.bytes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof IpAddress && Arrays.equals(bytes, ((IpAddress) o).bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bytes);
+    }
+
+    @Override
+    public String toString() {
+        if (text == null) {
+            text = bytes.length == 4 ? formatIpv4(bytes) : formatIpv6(bytes);
+        }
+        return text;
+    }
+
+    private static byte[] compact(byte[] bytes) {
+        if (bytes.length == 16 && Arrays.equals(bytes, 0, MAPPED_PREFIX.length, MAPPED_PREFIX, 0, MAPPED_PREFIX.length)) {
+            return Arrays.copyOfRange(bytes, 12, 16);
+        }
+        return bytes;
+    }
+
+    private static byte[] parseIpv4(String text) {
+        String[] parts = text.split("\\.", -1);
+        if (parts.length != 4) {
+            return null;
+        }
+        byte[] bytes = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            String part = parts[i];
+            if (part.isEmpty() || part.length() > 3) {
+                return null;
+            }
+            int value = 0;
+            for (int j = 0; j < part.length(); j++) {
+                char c = part.charAt(j);
+                if (c < '0' || c > '9') {
+                    return null;
+                }
+                value = value * 10 + (c - '0');
+            }
+            if (value > 255) {
+                return null;
+            }
+            bytes[i] = (byte) value;
+        }
+        return bytes;
+    }
+
+    private static byte[] parseIpv6(String text) {
+        int gap = text.indexOf("::");
+        if (gap >= 0 && text.indexOf("::", gap + 1) >= 0) {
+            return null;
+        }
+        byte[] bytes = new byte[16];
+        if (gap < 0) {
+            return groups(text, bytes, 16, true) == 16 ? bytes : null;
+        }
+        int head = groups(text.substring(0, gap), bytes, 14, false);
+        if (head < 0) {
+            return null;
+        }
+        byte[] tail = new byte[14 - head];
+        int written = groups(text.substring(gap + 2), tail, tail.length, true);
+        if (written < 0) {
+            return null;
+        }
+        System.arraycopy(tail, 0, bytes, 16 - written, written);
+        return bytes;
+    }
+
+    /**
+     * Parses colon-separated hex groups into {@code bytes}; the last group may be a dotted IPv4 address when
+     * {@code ipv4Tail} is set. Returns the number of bytes written, or -1 if the text is malformed or longer than
+     * {@code limit} bytes.
+     */
+    private static int groups(String text, byte[] bytes, int limit, boolean ipv4Tail) {
+        if (text.isEmpty()) {
+            return 0;
+        }
+        String[] groups = text.split(":", -1);
+        int written = 0;
+        for (int i = 0; i < groups.length; i++) {
+            String group = groups[i];
+            if (ipv4Tail && i == groups.length - 1 && group.indexOf('.') >= 0) {
+                byte[] ipv4 = parseIpv4(group);
+                if (ipv4 == null || written + 4 > limit) {
+                    return -1;
+                }
+                System.arraycopy(ipv4, 0, bytes, written, 4);
+                return written + 4;
+            }
+            if (group.isEmpty() || group.length() > 4 || written + 2 > limit) {
+                return -1;
+            }
+            int value = 0;
+            for (int j = 0; j < group.length(); j++) {
+                int digit = Character.digit(group.charAt(j), 16);
+                if (digit < 0) {
+                    return -1;
+                }
+                value = value * 16 + digit;
+            }
+            bytes[written] = (byte) (value >>> 8);
+            bytes[written + 1] = (byte) value;
+            written += 2;
+        }
+        return written;
+    }
+
+    private static String formatIpv4(byte[] bytes) {
+        return (bytes[0] & 0xff) + "." + (bytes[1] & 0xff) + "." +
+                (bytes[2] & 0xff) + "." + (bytes[3] & 0xff);
+    }
+
+    private static String formatIpv6(byte[] bytes) {
+        int[] groups = new int[8];
+        for (int i = 0; i < 8; i++) {
+            groups[i] = (bytes[2 * i] & 0xff) << 8 | bytes[2 * i + 1] & 0xff;
+        }
+        int bestStart = -1;
+        int bestLength = 1;
+        for (int i = 0; i < 8; ) {
+            int j = i;
+            while (j < 8 && groups[j] == 0) {
+                j++;
+            }
+            if (j - i > bestLength) {
+                bestStart = i;
+                bestLength = j - i;
+            }
+            i = j == i ? i + 1 : j;
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            if (i == bestStart) {
+                text.append("::");
+                i += bestLength - 1;
+                continue;
+            }
+            if (text.length() > 0 && text.charAt(text.length() - 1) != ':') {
+                text.append(':');
+            }
+            text.append(Integer.toHexString(groups[i]));
+        }
+        return text.toString();
+    }
+}
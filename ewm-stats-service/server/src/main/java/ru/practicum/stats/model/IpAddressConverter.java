@@ -0,0 +1,18 @@
+package ru.practicum.stats.model;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+@Converter
+public class IpAddressConverter implements AttributeConverter<IpAddress, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(IpAddress ip) {
+        return ip == null ? null : ip.toBytes();
+    }
+
+    @Override
+    public IpAddress convertToEntityAttribute(byte[] bytes) {
+        return bytes == null ? null : IpAddress.fromBytes(bytes);
+    }
+}
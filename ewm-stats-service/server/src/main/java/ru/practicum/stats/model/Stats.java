@@ -24,10 +24,21 @@ public class Stats {
     @Column(nullable = false)
     private String uri;
 
+    @Convert(converter = IpAddressConverter.class)
     @Column(nullable = false)
-    private String ip;
+    private IpAddress ip;
 
     @Column(name = "request_time", nullable = false)
     private LocalDateTime timestamp;
 
+    @Column(name = "duration_micros")
+    private Long durationMicros;
+
+    /**
+     * Number of hits this row stands for: above 1 for a hit kept by sampling, 0 for one left out of storage.
+     */
+    @Builder.Default
+    @Column(nullable = false)
+    private int weight = 1;
+
 }
\ No newline at end of file
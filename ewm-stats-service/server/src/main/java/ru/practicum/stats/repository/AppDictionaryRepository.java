@@ -0,0 +1,27 @@
+package ru.practicum.stats.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public class AppDictionaryRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String insertIfAbsentSql;
+
+    public AppDictionaryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.insertIfAbsentSql = SqlDialect.of(jdbcTemplate).insertIfAbsentSql("applications", List.of("app_name VARCHAR"));
+    }
+
+    /**
+     * Returns the id of the application, inserting it first if it is new. Runs in the caller's transaction; a
+     * concurrent insert of the same name waits for the other transaction instead of failing.
+     */
+    public long findOrInsert(String name) {
+        jdbcTemplate.update(insertIfAbsentSql, name);
+        return jdbcTemplate.queryForObject("SELECT id FROM applications WHERE app_name = ?", Long.class, name);
+    }
+}
@@ -0,0 +1,117 @@
+package ru.practicum.stats.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.lang.Nullable;
+import ru.practicum.stats.rollup.BucketLevel;
+import ru.practicum.stats.rollup.RangePlan.Segment;
+import ru.practicum.stats.rollup.RollupKey;
+import ru.practicum.stats.sketch.MergeableSketch;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Stores one serialized sketch per {@code (uri, granularity, bucket, app_id)} and merges new sketches into it.
+ */
+public abstract class BucketSketchRepository {
+
+    private static final List<String> KEY_COLUMNS =
+            List.of("uri VARCHAR", "granularity VARCHAR", "bucket TIMESTAMP", "app_id BIGINT");
+
+    protected final JdbcTemplate jdbcTemplate;
+    protected final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final String table;
+    private final String column;
+    private final String insertIfAbsentSql;
+
+    protected BucketSketchRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                                     String table, String column) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.table = table;
+        this.column = column;
+        this.insertIfAbsentSql = SqlDialect.of(jdbcTemplate).insertIfAbsentSql(table, KEY_COLUMNS, column + " BYTEA");
+    }
+
+    /**
+     * Merges the sketches into stored ones. Keys must be iterated in a stable order to avoid lock cycles.
+     */
+    public <T extends MergeableSketch<T>> void merge(BucketLevel level, Map<RollupKey, T> sketches,
+                                                     Function<byte[], T> reader) {
+        if (sketches.isEmpty()) {
+            return;
+        }
+        List<RollupKey> keys = new ArrayList<>(sketches.keySet());
+        List<Object[]> rows = new ArrayList<>(keys.size());
+        for (RollupKey key : keys) {
+            rows.add(new Object[]{key.getUri(), level.name(), Timestamp.valueOf(key.getBucket()), key.getAppId(),
+                    sketches.get(key).toBytes()});
+        }
+        int[] inserted = jdbcTemplate.batchUpdate(insertIfAbsentSql, rows);
+        String where = " WHERE uri = ? AND granularity = ? AND bucket = ? AND app_id = ?";
+        for (int i = 0; i < keys.size(); i++) {
+            if (inserted[i] == 1) {
+                continue;
+            }
+            Object[] row = rows.get(i);
+            byte[] stored = jdbcTemplate.queryForObject("SELECT " + column + " FROM " + table + where + " FOR UPDATE",
+                    byte[].class, row[0], row[1], row[2], row[3]);
+            T merged = reader.apply(stored);
+            merged.merge(sketches.get(keys.get(i)));
+            jdbcTemplate.update("UPDATE " + table + " SET " + column + " = ?" + where,
+                    merged.toBytes(), row[0], row[1], row[2], row[3]);
+        }
+    }
+
+    public boolean isEmpty() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT NOT EXISTS (SELECT 1 FROM " + table + ")", Boolean.class));
+    }
+
+    public void forEachSketch(Segment segment, @Nullable Collection<String> uris, SketchConsumer consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("granularity", segment.getLevel().name())
+                .addValue("from", Timestamp.valueOf(segment.getFrom()))
+                .addValue("to", Timestamp.valueOf(segment.getTo()))
+                .addValue("uris", uris);
+        namedJdbcTemplate.query("SELECT a.app_name, x.uri, x." + column + " FROM " + table + " x " +
+                        "JOIN applications a ON a.id = x.app_id " +
+                        "WHERE x.granularity = :granularity AND x.bucket >= :from AND x.bucket < :to" +
+                        (uris == null ? "" : " AND x.uri IN (:uris)"), params,
+                rs -> {
+                    consumer.accept(rs.getString(1), rs.getString(2), rs.getBytes(3));
+                });
+    }
+
+    public void forEachBucketSketch(BucketLevel level, LocalDateTime from, LocalDateTime to, Collection<String> uris,
+                                    BucketSketchConsumer consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("granularity", level.name())
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to))
+                .addValue("uris", uris);
+        namedJdbcTemplate.query("SELECT a.app_name, x.uri, x.bucket, x." + column + " FROM " + table + " x " +
+                        "JOIN applications a ON a.id = x.app_id " +
+                        "WHERE x.granularity = :granularity AND x.bucket >= :from AND x.bucket < :to " +
+                        "AND x.uri IN (:uris)", params,
+                rs -> {
+                    consumer.accept(rs.getString(1), rs.getString(2), rs.getTimestamp(3).toLocalDateTime(),
+                            rs.getBytes(4));
+                });
+    }
+
+    public interface SketchConsumer {
+        void accept(String app, String uri, byte[] sketch);
+    }
+
+    public interface BucketSketchConsumer {
+        void accept(String app, String uri, LocalDateTime bucket, byte[] sketch);
+    }
+}
@@ -0,0 +1,52 @@
+package ru.practicum.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.model.Stats;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.StringJoiner;
+
+@Repository
+@DependsOn("ipColumnMigration")
+@RequiredArgsConstructor
+public class HitBatchRepository {
+
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+    private static final String INSERT_PREFIX = "INSERT INTO stats (app_id, uri, ip, request_time, weight, duration_micros) VALUES ";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<Stats> hits) {
+        for (int from = 0; from < hits.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Stats> chunk = hits.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, hits.size()));
+            jdbcTemplate.update(insertSql(chunk.size()), ps -> bind(ps, chunk));
+        }
+    }
+
+    private static String insertSql(int rows) {
+        StringJoiner values = new StringJoiner(", ", INSERT_PREFIX, "");
+        for (int i = 0; i < rows; i++) {
+            values.add("(?, ?, ?, ?, ?, ?)");
+        }
+        return values.toString();
+    }
+
+    private static void bind(PreparedStatement ps, List<Stats> hits) throws SQLException {
+        int index = 1;
+        for (Stats hit : hits) {
+            ps.setLong(index++, hit.getApp().getId());
+            ps.setString(index++, hit.getUri());
+            ps.setBytes(index++, hit.getIp().toBytes());
+            ps.setTimestamp(index++, Timestamp.valueOf(hit.getTimestamp()));
+            ps.setInt(index++, hit.getWeight());
+            ps.setObject(index++, hit.getDurationMicros(), Types.BIGINT);
+        }
+    }
+}
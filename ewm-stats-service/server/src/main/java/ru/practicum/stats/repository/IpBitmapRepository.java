@@ -0,0 +1,13 @@
+package ru.practicum.stats.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class IpBitmapRepository extends BucketSketchRepository {
+
+    public IpBitmapRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate) {
+        super(jdbcTemplate, namedJdbcTemplate, "stats_ip_bitmap", "bitmap");
+    }
+}
@@ -0,0 +1,52 @@
+package ru.practicum.stats.repository;
+
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.model.IpAddress;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Repository
+@DependsOn("ipColumnMigration")
+public class IpDictionaryRepository {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final String insertIfAbsentSql;
+
+    public IpDictionaryRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.insertIfAbsentSql = SqlDialect.of(jdbcTemplate).insertIfAbsentSql("ip_dictionary", List.of("ip BYTEA"));
+    }
+
+    public void findIds(Collection<IpAddress> ips, Map<IpAddress, Integer> ids) {
+        List<byte[]> all = ips.stream().map(IpAddress::toBytes).collect(Collectors.toList());
+        for (int from = 0; from < all.size(); from += CHUNK_SIZE) {
+            List<byte[]> chunk = all.subList(from, Math.min(from + CHUNK_SIZE, all.size()));
+            namedJdbcTemplate.query("SELECT ip, id FROM ip_dictionary WHERE ip IN (:ips)", Map.of("ips", chunk),
+                    rs -> {
+                        ids.put(IpAddress.fromBytes(rs.getBytes(1)), rs.getInt(2));
+                    });
+        }
+    }
+
+    public void insertAll(Collection<IpAddress> ips) {
+        jdbcTemplate.batchUpdate(insertIfAbsentSql, ips.stream()
+                .sorted()
+                .map(ip -> new Object[]{ip.toBytes()})
+                .collect(Collectors.toList()));
+    }
+
+    public void insertFromStats() {
+        jdbcTemplate.update("INSERT INTO ip_dictionary (ip) SELECT DISTINCT s.ip FROM stats s " +
+                "WHERE NOT EXISTS (SELECT 1 FROM ip_dictionary d WHERE d.ip = s.ip)");
+    }
+}
@@ -0,0 +1,206 @@
+package ru.practicum.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Repository;
+import ru.practicum.common.dto.StatsRangeQuery;
+import ru.practicum.stats.model.IpAddress;
+import ru.practicum.stats.repository.RollupRepository.BucketCountConsumer;
+import ru.practicum.stats.rollup.BucketLevel;
+import ru.practicum.stats.rollup.RangePlan.Segment;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.StringJoiner;
+
+@Repository
+@DependsOn("ipColumnMigration")
+@RequiredArgsConstructor
+public class RawHitRepository {
+
+    private static final int FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public void forEachDistinctIp(Segment segment, @Nullable Collection<String> uris, IpConsumer consumer) {
+        namedJdbcTemplate.query("SELECT DISTINCT a.app_name, s.uri, s.ip FROM stats s " +
+                        "JOIN applications a ON a.id = s.app_id " +
+                        "WHERE " + rangeFilter(segment, uris), params(segment, uris),
+                rs -> {
+                    consumer.accept(rs.getString(1), rs.getString(2), IpAddress.fromBytes(rs.getBytes(3)));
+                });
+    }
+
+    public void forEachDistinctIpId(Segment segment, @Nullable Collection<String> uris, IpIdConsumer consumer) {
+        namedJdbcTemplate.query("SELECT DISTINCT a.app_name, s.uri, d.id FROM stats s " +
+                        "JOIN applications a ON a.id = s.app_id " +
+                        "JOIN ip_dictionary d ON d.ip = s.ip " +
+                        "WHERE " + rangeFilter(segment, uris), params(segment, uris),
+                rs -> {
+                    consumer.accept(rs.getString(1), rs.getString(2), rs.getInt(3));
+                });
+    }
+
+    public void forEachHit(HitConsumer consumer) {
+        jdbcTemplate.query("SELECT app_id, uri, ip, request_time, weight FROM stats WHERE app_id IS NOT NULL",
+                rs -> {
+                    consumer.accept(rs.getLong(1), rs.getString(2), IpAddress.fromBytes(rs.getBytes(3)),
+                            rs.getTimestamp(4).toLocalDateTime(), rs.getInt(5));
+                });
+    }
+
+    public void forEachHitWithIpId(IdHitConsumer consumer) {
+        jdbcTemplate.query("SELECT s.app_id, s.uri, d.id, s.request_time FROM stats s " +
+                        "JOIN ip_dictionary d ON d.ip = s.ip WHERE s.app_id IS NOT NULL",
+                rs -> {
+                    consumer.accept(rs.getLong(1), rs.getString(2), rs.getInt(3),
+                            rs.getTimestamp(4).toLocalDateTime());
+                });
+    }
+
+    public void forEachTimedHit(TimedHitConsumer consumer) {
+        jdbcTemplate.query("SELECT app_id, uri, request_time, duration_micros, weight FROM stats " +
+                        "WHERE app_id IS NOT NULL AND duration_micros IS NOT NULL",
+                rs -> {
+                    consumer.accept(rs.getLong(1), rs.getString(2), rs.getTimestamp(3).toLocalDateTime(),
+                            rs.getLong(4), rs.getInt(5));
+                });
+    }
+
+    public void forEachDuration(Segment segment, @Nullable Collection<String> uris, DurationConsumer consumer) {
+        namedJdbcTemplate.query("SELECT a.app_name, s.uri, s.duration_micros, s.weight FROM stats s " +
+                        "JOIN applications a ON a.id = s.app_id " +
+                        "WHERE s.duration_micros IS NOT NULL AND " + rangeFilter(segment, uris),
+                params(segment, uris),
+                rs -> {
+                    consumer.accept(rs.getString(1), rs.getString(2), rs.getLong(3), rs.getInt(4));
+                });
+    }
+
+    @Nullable
+    public LocalDateTime findOldestBefore(LocalDateTime time) {
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(request_time) FROM stats WHERE request_time < ?",
+                Timestamp.class, Timestamp.valueOf(time));
+        return oldest == null ? null : oldest.toLocalDateTime();
+    }
+
+    public void forEachHitBetween(LocalDateTime from, LocalDateTime to, NamedHitConsumer consumer) {
+        streamHits("s.request_time >= ? AND s.request_time < ? ORDER BY s.uri, s.request_time", consumer,
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    public void forEachHitSince(LocalDateTime from, NamedHitConsumer consumer) {
+        streamHits("s.request_time >= ?", consumer, Timestamp.valueOf(from));
+    }
+
+    public void forEachBucketCount(BucketLevel level, LocalDateTime from, LocalDateTime to, Collection<String> uris,
+                                   boolean unique, BucketCountConsumer consumer) {
+        String bucket = "DATE_TRUNC('" + level.name() + "', s.request_time)";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to))
+                .addValue("uris", uris);
+        namedJdbcTemplate.query("SELECT a.app_name, s.uri, " + bucket + ", " +
+                        (unique ? "COUNT(DISTINCT s.ip)" : "SUM(s.weight)") + " FROM stats s " +
+                        "JOIN applications a ON a.id = s.app_id " +
+                        "WHERE s.request_time >= :from AND s.request_time < :to AND s.uri IN (:uris) " +
+                        "GROUP BY a.app_name, s.uri, " + bucket, params,
+                rs -> {
+                    consumer.accept(rs.getString(1), rs.getString(2), rs.getTimestamp(3).toLocalDateTime(),
+                            rs.getLong(4));
+                });
+    }
+
+    /**
+     * Counts hits of every {@code (uri, start, end)} range in one statement by joining the ranges, passed as a
+     * {@code VALUES} list, to the raw hits. Ranges are identified by their position in the list.
+     */
+    public void forEachRangeCount(List<StatsRangeQuery> ranges, boolean unique, RangeCountConsumer consumer) {
+        StringJoiner values = new StringJoiner(", ");
+        Object[] params = new Object[ranges.size() * 4];
+        for (int i = 0; i < ranges.size(); i++) {
+            StatsRangeQuery range = ranges.get(i);
+            values.add("(CAST(? AS INTEGER), CAST(? AS VARCHAR), CAST(? AS TIMESTAMP), CAST(? AS TIMESTAMP))");
+            params[i * 4] = i;
+            params[i * 4 + 1] = range.getUri();
+            params[i * 4 + 2] = Timestamp.valueOf(range.getStart());
+            params[i * 4 + 3] = Timestamp.valueOf(range.getEnd());
+        }
+        jdbcTemplate.query("SELECT q.idx, a.app_name, " + (unique ? "COUNT(DISTINCT s.ip)" : "SUM(s.weight)") +
+                        " FROM (VALUES " + values + ") AS q (idx, uri, range_start, range_end) " +
+                        "JOIN stats s ON s.uri = q.uri AND s.request_time >= q.range_start " +
+                        "AND s.request_time <= q.range_end " +
+                        "JOIN applications a ON a.id = s.app_id " +
+                        "GROUP BY q.idx, a.app_name",
+                rs -> {
+                    consumer.accept(rs.getInt(1), rs.getString(2), rs.getLong(3));
+                }, params);
+    }
+
+    private void streamHits(String condition, NamedHitConsumer consumer, Timestamp... params) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("SELECT a.app_name, s.uri, s.ip, s.request_time, s.weight " +
+                    "FROM stats s JOIN applications a ON a.id = s.app_id WHERE " + condition);
+            statement.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < params.length; i++) {
+                statement.setTimestamp(i + 1, params[i]);
+            }
+            return statement;
+        }, rs -> {
+            consumer.accept(rs.getString(1), rs.getString(2), IpAddress.fromBytes(rs.getBytes(3)),
+                    rs.getTimestamp(4).toLocalDateTime(), rs.getInt(5));
+        });
+    }
+
+    private static String rangeFilter(Segment segment, @Nullable Collection<String> uris) {
+        return "s.request_time >= :from AND s.request_time " + (segment.isToInclusive() ? "<=" : "<") + " :to" +
+                (uris == null ? "" : " AND s.uri IN (:uris)");
+    }
+
+    private static MapSqlParameterSource params(Segment segment, @Nullable Collection<String> uris) {
+        return new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(segment.getFrom()))
+                .addValue("to", Timestamp.valueOf(segment.getTo()))
+                .addValue("uris", uris);
+    }
+
+    public interface IpConsumer {
+        void accept(String app, String uri, IpAddress ip);
+    }
+
+    public interface IpIdConsumer {
+        void accept(String app, String uri, int ipId);
+    }
+
+    public interface HitConsumer {
+        void accept(long appId, String uri, IpAddress ip, LocalDateTime time, int weight);
+    }
+
+    public interface NamedHitConsumer {
+        void accept(String app, String uri, IpAddress ip, LocalDateTime time, int weight);
+    }
+
+    public interface TimedHitConsumer {
+        void accept(long appId, String uri, LocalDateTime time, long durationMicros, int weight);
+    }
+
+    public interface DurationConsumer {
+        void accept(String app, String uri, long durationMicros, int weight);
+    }
+
+    public interface RangeCountConsumer {
+        void accept(int range, String app, long hits);
+    }
+
+    public interface IdHitConsumer {
+        void accept(long appId, String uri, int ipId, LocalDateTime time);
+    }
+}
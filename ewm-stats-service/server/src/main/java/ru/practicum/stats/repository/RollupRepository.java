@@ -0,0 +1,145 @@
+package ru.practicum.stats.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.model.ViewStats;
+import ru.practicum.stats.rollup.BucketLevel;
+import ru.practicum.stats.rollup.RangePlan.Segment;
+import ru.practicum.stats.rollup.RollupKey;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
+
+@Repository
+public class RollupRepository {
+
+    private static final List<String> KEY_COLUMNS = List.of("uri VARCHAR", "bucket TIMESTAMP", "app_id BIGINT");
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+    private final SqlDialect dialect;
+
+    public RollupRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(STREAM_FETCH_SIZE);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streaming);
+        this.dialect = SqlDialect.of(jdbcTemplate);
+    }
+
+    public void increment(BucketLevel level, Map<RollupKey, Long> increments) {
+        if (increments.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(increments.size());
+        increments.forEach((key, hits) ->
+                rows.add(new Object[]{key.getUri(), Timestamp.valueOf(key.getBucket()), key.getAppId(), hits}));
+        jdbcTemplate.batchUpdate(dialect.incrementSql(level.getTable(), KEY_COLUMNS, "hits BIGINT"), rows);
+    }
+
+    public void backfillIfEmpty(BucketLevel level) {
+        Boolean empty = jdbcTemplate.queryForObject(
+                "SELECT NOT EXISTS (SELECT 1 FROM " + level.getTable() + ")", Boolean.class);
+        if (!Boolean.TRUE.equals(empty)) {
+            return;
+        }
+        String bucket = "DATE_TRUNC('" + level.name() + "', request_time)";
+        jdbcTemplate.update("INSERT INTO " + level.getTable() + " (uri, bucket, app_id, hits) " +
+                "SELECT uri, " + bucket + ", app_id, SUM(weight) FROM stats " +
+                "WHERE app_id IS NOT NULL " +
+                "GROUP BY uri, " + bucket + ", app_id");
+    }
+
+    public List<ViewStats> findStats(List<Segment> segments, @Nullable Collection<String> uris) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = statsSql(segments, uris, params);
+        if (sql == null) {
+            return new ArrayList<>();
+        }
+        return namedJdbcTemplate.query(sql, params, (rs, rowNum) ->
+                new ViewStats(rs.getString("app_name"), rs.getString("uri"), rs.getLong("hits")));
+    }
+
+    /**
+     * Same as {@link #findStats} but hands rows to the consumer as they are read from a forward-only cursor.
+     */
+    public void streamStats(List<Segment> segments, @Nullable Collection<String> uris, Consumer<ViewStats> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = statsSql(segments, uris, params);
+        if (sql == null) {
+            return;
+        }
+        streamingJdbcTemplate.query(sql, params, rs -> {
+            consumer.accept(new ViewStats(rs.getString("app_name"), rs.getString("uri"), rs.getLong("hits")));
+        });
+    }
+
+    public void forEachBucket(BucketLevel level, LocalDateTime from, LocalDateTime to, Collection<String> uris,
+                              BucketCountConsumer consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to))
+                .addValue("uris", uris);
+        namedJdbcTemplate.query("SELECT a.app_name, r.uri, r.bucket, r.hits FROM " + level.getTable() + " r " +
+                        "JOIN applications a ON a.id = r.app_id " +
+                        "WHERE r.bucket >= :from AND r.bucket < :to AND r.uri IN (:uris)", params,
+                rs -> {
+                    consumer.accept(rs.getString(1), rs.getString(2), rs.getTimestamp(3).toLocalDateTime(),
+                            rs.getLong(4));
+                });
+    }
+
+    @Nullable
+    private static String statsSql(List<Segment> segments, @Nullable Collection<String> uris,
+                                   MapSqlParameterSource params) {
+        StringJoiner union = new StringJoiner(" UNION ALL ");
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            if (!segment.isInDatabase()) {
+                continue;
+            }
+            String from = "from" + i;
+            String to = "to" + i;
+            params.addValue(from, Timestamp.valueOf(segment.getFrom()));
+            params.addValue(to, Timestamp.valueOf(segment.getTo()));
+            String filter = uris == null ? "" : " AND uri IN (:uris)";
+            if (segment.isRaw()) {
+                union.add("SELECT app_id, uri, SUM(weight) AS hits FROM stats " +
+                        "WHERE request_time >= :" + from +
+                        " AND request_time " + (segment.isToInclusive() ? "<= :" : "< :") + to + filter +
+                        " GROUP BY app_id, uri");
+            } else {
+                union.add("SELECT app_id, uri, SUM(hits) AS hits FROM " + segment.getLevel().getTable() +
+                        " WHERE bucket >= :" + from + " AND bucket < :" + to + filter +
+                        " GROUP BY app_id, uri");
+            }
+        }
+        if (union.length() == 0) {
+            return null;
+        }
+        if (uris != null) {
+            params.addValue("uris", uris);
+        }
+        return "SELECT a.app_name, x.uri, SUM(x.hits) AS hits " +
+                "FROM (" + union + ") x " +
+                "JOIN applications a ON a.id = x.app_id " +
+                "GROUP BY a.app_name, x.uri " +
+                "ORDER BY hits DESC";
+    }
+
+    public interface BucketCountConsumer {
+        void accept(String app, String uri, LocalDateTime bucket, long hits);
+    }
+}
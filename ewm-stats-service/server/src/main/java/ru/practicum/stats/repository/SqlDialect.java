@@ -0,0 +1,92 @@
+package ru.practicum.stats.repository;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Upsert statements for the databases the stats server runs on. Columns are given as
+ * {@code "name TYPE"}; H2 needs the types to cast parameters of its {@code MERGE ... USING (VALUES ...)} source.
+ */
+public enum SqlDialect {
+    POSTGRESQL,
+    H2;
+
+    public static SqlDialect of(JdbcTemplate jdbcTemplate) {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if ("PostgreSQL".equals(product)) {
+            return POSTGRESQL;
+        }
+        if ("H2".equals(product)) {
+            return H2;
+        }
+        throw new IllegalStateException("Unsupported stats database: " + product);
+    }
+
+    /**
+     * Builds an insert-or-add statement; parameters are the key columns followed by the increment.
+     */
+    public String incrementSql(String table, List<String> keyColumns, String valueColumn) {
+        String value = name(valueColumn);
+        if (this == POSTGRESQL) {
+            return insertSql(table, keyColumns, valueColumn) +
+                    " ON CONFLICT (" + names(keyColumns) + ")" +
+                    " DO UPDATE SET " + value + " = " + table + "." + value + " + EXCLUDED." + value;
+        }
+        return mergeSql(table, keyColumns, valueColumn) +
+                " WHEN MATCHED THEN UPDATE SET " + value + " = t." + value + " + s." + value +
+                " WHEN NOT MATCHED THEN " + mergeInsert(keyColumns, valueColumn);
+    }
+
+    /**
+     * Builds an insert statement that skips rows whose key already exists; parameters are the key columns
+     * followed by the values.
+     */
+    public String insertIfAbsentSql(String table, List<String> keyColumns, String... valueColumns) {
+        if (this == POSTGRESQL) {
+            return insertSql(table, keyColumns, valueColumns) + " ON CONFLICT (" + names(keyColumns) + ") DO NOTHING";
+        }
+        return mergeSql(table, keyColumns, valueColumns) + " WHEN NOT MATCHED THEN " + mergeInsert(keyColumns, valueColumns);
+    }
+
+    private static List<String> columns(List<String> keyColumns, String... valueColumns) {
+        List<String> columns = new ArrayList<>(keyColumns);
+        columns.addAll(Arrays.asList(valueColumns));
+        return columns;
+    }
+
+    private static String name(String column) {
+        return column.split(" ")[0];
+    }
+
+    private static String names(List<String> columns) {
+        return columns.stream().map(SqlDialect::name).collect(Collectors.joining(", "));
+    }
+
+    private static String insertSql(String table, List<String> keyColumns, String... valueColumns) {
+        List<String> columns = columns(keyColumns, valueColumns);
+        return "INSERT INTO " + table + " (" + names(columns) + ") VALUES (" +
+                columns.stream().map(column -> "?").collect(Collectors.joining(", ")) + ")";
+    }
+
+    private static String mergeSql(String table, List<String> keyColumns, String... valueColumns) {
+        List<String> columns = columns(keyColumns, valueColumns);
+        String values = columns.stream()
+                .map(column -> "CAST(? AS " + column.substring(column.indexOf(' ') + 1) + ")")
+                .collect(Collectors.joining(", "));
+        String on = keyColumns.stream().map(SqlDialect::name).map(column -> "t." + column + " = s." + column)
+                .collect(Collectors.joining(" AND "));
+        return "MERGE INTO " + table + " t USING (VALUES (" + values + ")) s (" + names(columns) + ") ON " + on;
+    }
+
+    private static String mergeInsert(List<String> keyColumns, String... valueColumns) {
+        List<String> columns = columns(keyColumns, valueColumns);
+        return "INSERT (" + names(columns) + ") VALUES (" +
+                columns.stream().map(SqlDialect::name).map(column -> "s." + column).collect(Collectors.joining(", ")) + ")";
+    }
+}
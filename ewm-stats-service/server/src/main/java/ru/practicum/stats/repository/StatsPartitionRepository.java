@@ -0,0 +1,77 @@
+package ru.practicum.stats.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Monthly partitions of the raw {@code stats} table. On PostgreSQL each month is a partition named
+ * {@code stats_yYYYYmMM} and rows outside of them land in {@code stats_default}; H2 and a {@code stats} table
+ * created before partitioning keep a single table.
+ */
+@Slf4j
+@Repository
+public class StatsPartitionRepository {
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'stats_y'yyyy'm'MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean partitioned;
+
+    public StatsPartitionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitioned = SqlDialect.of(jdbcTemplate) == SqlDialect.POSTGRESQL
+                && Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 " +
+                "FROM pg_partitioned_table WHERE partrelid = 'stats'::regclass)", Boolean.class));
+    }
+
+    public void createPartition(YearMonth month) {
+        if (!partitioned) {
+            return;
+        }
+        String name = month.format(PARTITION_NAME);
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        if (partitionNames().contains(name)) {
+            return;
+        }
+        Boolean inDefault = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM stats_default " +
+                "WHERE request_time >= ? AND request_time < ?)", Boolean.class, Timestamp.valueOf(from), Timestamp.valueOf(to));
+        if (Boolean.TRUE.equals(inDefault)) {
+            log.warn("Hits for {} are already in stats_default, partition {} is not created", month, name);
+            return;
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF stats FOR VALUES FROM ('" +
+                Timestamp.valueOf(from) + "') TO ('" + Timestamp.valueOf(to) + "')");
+    }
+
+    /**
+     * Removes raw hits older than the cutoff, which must be the first day of a month.
+     */
+    public void dropBefore(LocalDateTime cutoff) {
+        YearMonth cutoffMonth = YearMonth.from(cutoff);
+        if (partitioned) {
+            for (String name : partitionNames()) {
+                if (YearMonth.parse(name, PARTITION_NAME).isBefore(cutoffMonth)) {
+                    jdbcTemplate.execute("DROP TABLE " + name);
+                    log.info("Dropped raw partition {}", name);
+                }
+            }
+        }
+        int deleted = jdbcTemplate.update("DELETE FROM " + (partitioned ? "stats_default" : "stats") +
+                " WHERE request_time < ?", Timestamp.valueOf(cutoff));
+        log.info("Deleted {} raw hits before {}", deleted, cutoff);
+    }
+
+    private List<String> partitionNames() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent " +
+                "WHERE p.relname = 'stats' AND c.relname LIKE 'stats\\_y%'", String.class);
+    }
+}
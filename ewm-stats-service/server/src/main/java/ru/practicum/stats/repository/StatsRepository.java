@@ -2,30 +2,35 @@ package ru.practicum.stats.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import ru.practicum.stats.model.Stats;
 import ru.practicum.stats.model.ViewStats;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface StatsRepository extends JpaRepository<Stats, Long> {
 
-    @Query("SELECT new ru.practicum.stats.model.ViewStats(a.name, s.uri, COUNT(s.ip)) " +
+    @Query("SELECT new ru.practicum.stats.model.ViewStats(a.name, s.uri, SUM(s.weight)) " +
             "FROM App a " +
             "JOIN Stats s ON s.app.id = a.id " +
             "WHERE s.timestamp BETWEEN :start AND :end " +
             "AND s.uri IN :uris " +
             "GROUP BY a.name, s.uri " +
-            "ORDER BY COUNT(s.ip) DESC")
+            "ORDER BY SUM(s.weight) DESC")
     List<ViewStats> findStats(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end, @Param("uris") List<String> uris);
 
-    @Query("SELECT new ru.practicum.stats.model.ViewStats(a.name, s.uri, COUNT(s.ip)) " +
+    @Query("SELECT new ru.practicum.stats.model.ViewStats(a.name, s.uri, SUM(s.weight)) " +
             "FROM App a " +
             "JOIN Stats s ON s.app.id = a.id " +
             "WHERE s.timestamp BETWEEN :start AND :end " +
             "GROUP BY a.name, s.uri " +
-            "ORDER BY COUNT(s.ip) DESC")
+            "ORDER BY SUM(s.weight) DESC")
     List<ViewStats> findStatsWithOutUris(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 
     @Query("SELECT new ru.practicum.stats.model.ViewStats(a.name, s.uri, COUNT(DISTINCT s.ip)) " +
@@ -44,4 +49,42 @@ public interface StatsRepository extends JpaRepository<Stats, Long> {
             "GROUP BY a.name, s.uri " +
             "ORDER BY COUNT(DISTINCT s.ip) DESC")
     List<ViewStats> findStatsUniqueWithOutUris(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
-}
\ No newline at end of file
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new ru.practicum.stats.model.ViewStats(a.name, s.uri, SUM(s.weight)) " +
+            "FROM App a " +
+            "JOIN Stats s ON s.app.id = a.id " +
+            "WHERE s.timestamp BETWEEN :start AND :end " +
+            "AND s.uri IN :uris " +
+            "GROUP BY a.name, s.uri " +
+            "ORDER BY SUM(s.weight) DESC")
+    Stream<ViewStats> streamStats(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end, @Param("uris") List<String> uris);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new ru.practicum.stats.model.ViewStats(a.name, s.uri, SUM(s.weight)) " +
+            "FROM App a " +
+            "JOIN Stats s ON s.app.id = a.id " +
+            "WHERE s.timestamp BETWEEN :start AND :end " +
+            "GROUP BY a.name, s.uri " +
+            "ORDER BY SUM(s.weight) DESC")
+    Stream<ViewStats> streamStatsWithOutUris(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new ru.practicum.stats.model.ViewStats(a.name, s.uri, COUNT(DISTINCT s.ip)) " +
+            "FROM App a " +
+            "JOIN Stats s ON s.app.id = a.id " +
+            "WHERE s.timestamp BETWEEN :start AND :end " +
+            "AND s.uri IN :uris " +
+            "GROUP BY a.name, s.uri " +
+            "ORDER BY COUNT(DISTINCT s.ip) DESC")
+    Stream<ViewStats> streamStatsUnique(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end, @Param("uris") List<String> uris);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new ru.practicum.stats.model.ViewStats(a.name, s.uri, COUNT(DISTINCT s.ip)) " +
+            "FROM App a " +
+            "JOIN Stats s ON s.app = a " +
+            "WHERE s.timestamp BETWEEN :start AND :end " +
+            "GROUP BY a.name, s.uri " +
+            "ORDER BY COUNT(DISTINCT s.ip) DESC")
+    Stream<ViewStats> streamStatsUniqueWithOutUris(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+}
@@ -0,0 +1,78 @@
+package ru.practicum.stats.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.rollup.BucketLevel;
+import ru.practicum.stats.rollup.RangePlan.Segment;
+import ru.practicum.stats.sketch.SpaceSaving;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.function.Consumer;
+
+/**
+ * Stores one heavy-hitters sketch per {@code (granularity, bucket)} across all apps. Sketches are folded in within
+ * the transaction that stores the hits, so writers of the same bucket queue on its row lock in {@link #merge}
+ * until they commit.
+ */
+@Repository
+public class TopUriRepository {
+
+    private static final String WHERE = " WHERE granularity = ? AND bucket = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String insertIfAbsentSql;
+
+    public TopUriRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.insertIfAbsentSql = SqlDialect.of(jdbcTemplate).insertIfAbsentSql("stats_top_uris",
+                List.of("granularity VARCHAR", "bucket TIMESTAMP"), "sketch BYTEA");
+    }
+
+    /**
+     * Merges the sketches into stored ones; buckets are locked in ascending order.
+     */
+    public void merge(BucketLevel level, SortedMap<LocalDateTime, SpaceSaving> sketches) {
+        if (sketches.isEmpty()) {
+            return;
+        }
+        List<LocalDateTime> buckets = new ArrayList<>(sketches.keySet());
+        List<Object[]> rows = new ArrayList<>(buckets.size());
+        for (LocalDateTime bucket : buckets) {
+            rows.add(new Object[]{level.name(), Timestamp.valueOf(bucket), sketches.get(bucket).toBytes()});
+        }
+        int[] inserted = jdbcTemplate.batchUpdate(insertIfAbsentSql, rows);
+        for (int i = 0; i < buckets.size(); i++) {
+            if (inserted[i] == 1) {
+                continue;
+            }
+            Object[] row = rows.get(i);
+            byte[] stored = jdbcTemplate.queryForObject("SELECT sketch FROM stats_top_uris" + WHERE + " FOR UPDATE",
+                    byte[].class, row[0], row[1]);
+            SpaceSaving merged = SpaceSaving.fromBytes(stored);
+            merged.merge(sketches.get(buckets.get(i)));
+            jdbcTemplate.update("UPDATE stats_top_uris SET sketch = ?" + WHERE, merged.toBytes(), row[0], row[1]);
+        }
+    }
+
+    public boolean isEmpty() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT NOT EXISTS (SELECT 1 FROM stats_top_uris)", Boolean.class));
+    }
+
+    public void forEachSketch(Segment segment, Consumer<SpaceSaving> consumer) {
+        forEachSketch(segment.getLevel(), segment.getFrom(), segment.getTo(), consumer);
+    }
+
+    public void forEachSketch(BucketLevel level, LocalDateTime from, LocalDateTime to, Consumer<SpaceSaving> consumer) {
+        jdbcTemplate.query("SELECT sketch FROM stats_top_uris " +
+                        "WHERE granularity = ? AND bucket >= ? AND bucket < ?",
+                rs -> {
+                    consumer.accept(SpaceSaving.fromBytes(rs.getBytes(1)));
+                },
+                level.name(), Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+}
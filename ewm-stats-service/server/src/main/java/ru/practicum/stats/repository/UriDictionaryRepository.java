@@ -0,0 +1,47 @@
+package ru.practicum.stats.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Repository
+public class UriDictionaryRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String insertIfAbsentSql;
+
+    public UriDictionaryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.insertIfAbsentSql = SqlDialect.of(jdbcTemplate).insertIfAbsentSql("uri_dictionary", List.of("uri VARCHAR"));
+    }
+
+    public void forEachUri(Consumer<String> consumer) {
+        jdbcTemplate.query("SELECT uri FROM uri_dictionary", rs -> {
+            consumer.accept(rs.getString(1));
+        });
+    }
+
+    public boolean isEmpty() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT NOT EXISTS (SELECT 1 FROM uri_dictionary)", Boolean.class));
+    }
+
+    public void insertAll(Collection<String> uris) {
+        jdbcTemplate.batchUpdate(insertIfAbsentSql, uris.stream()
+                .sorted()
+                .map(uri -> new Object[]{uri})
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Collects uris from raw hits and from day rollups, which outlive raw hits dropped by retention.
+     */
+    public void insertFromStats() {
+        jdbcTemplate.update("INSERT INTO uri_dictionary (uri) " +
+                "SELECT uri FROM stats UNION SELECT uri FROM stats_rollup_day");
+    }
+}
@@ -0,0 +1,26 @@
+package ru.practicum.stats.retention;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.repository.StatsPartitionRepository;
+
+import javax.annotation.PostConstruct;
+import java.time.YearMonth;
+
+@Component
+@RequiredArgsConstructor
+public class PartitionMaintenance {
+
+    private final StatsPartitionRepository statsPartitionRepository;
+    private final RetentionProperties properties;
+
+    @PostConstruct
+    @Scheduled(cron = "${stats.retention.cron:0 30 3 * * *}")
+    public void createPartitions() {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= properties.getPartitionsAhead(); i++) {
+            statsPartitionRepository.createPartition(current.plusMonths(i));
+        }
+    }
+}
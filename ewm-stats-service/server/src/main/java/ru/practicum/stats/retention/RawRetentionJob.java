@@ -0,0 +1,70 @@
+package ru.practicum.stats.retention;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.stats.archive.ArchiveStore;
+import ru.practicum.stats.repository.RawHitRepository;
+import ru.practicum.stats.repository.StatsPartitionRepository;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+/**
+ * Drops raw hits behind the retention horizon, archiving them first when the archive is enabled. Rollups,
+ * IP bitmaps and HLL sketches are written in the same transaction as the raw rows, so the downsampled data
+ * already exists when a month is dropped.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "stats.retention", name = "enabled", havingValue = "true")
+public class RawRetentionJob {
+
+    private final StatsPartitionRepository statsPartitionRepository;
+    private final RawHitRepository rawHitRepository;
+    private final ArchiveStore archiveStore;
+    private final RetentionPolicy retentionPolicy;
+    @Value("${stats.rollup.enabled:false}")
+    private boolean rollupEnabled;
+    @Value("${stats.bitmap.enabled:false}")
+    private boolean bitmapEnabled;
+
+    @PostConstruct
+    public void checkDownsampling() {
+        if (!rollupEnabled || !bitmapEnabled) {
+            throw new IllegalStateException(
+                    "stats.retention.enabled requires stats.rollup.enabled and stats.bitmap.enabled");
+        }
+    }
+
+    @Transactional
+    @Scheduled(cron = "${stats.retention.cron:0 30 3 * * *}")
+    public void dropExpired() {
+        LocalDateTime cutoff = retentionPolicy.cutoff();
+        if (archiveStore.isEnabled()) {
+            archive(cutoff);
+        }
+        statsPartitionRepository.dropBefore(cutoff);
+    }
+
+    private void archive(LocalDateTime cutoff) {
+        LocalDateTime oldest = rawHitRepository.findOldestBefore(cutoff);
+        if (oldest == null) {
+            return;
+        }
+        for (YearMonth month = YearMonth.from(oldest); month.atDay(1).atStartOfDay().isBefore(cutoff);
+             month = month.plusMonths(1)) {
+            if (archiveStore.contains(month)) {
+                continue;
+            }
+            LocalDateTime from = month.atDay(1).atStartOfDay();
+            LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+            archiveStore.append(month, writer -> rawHitRepository.forEachHitBetween(from, to,
+                    (app, uri, ip, time, weight) -> writer.add(app, uri, ip.toString(), time, weight)));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ru.practicum.stats.retention;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.archive.ArchiveStore;
+import ru.practicum.stats.rollup.RawHorizon;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+/**
+ * Raw hits are kept for whole months only: everything before the first month that is younger than
+ * {@code stats.retention.raw-age} is moved to the archive, or served from rollups and sketches alone.
+ */
+@Component
+@RequiredArgsConstructor
+public class RetentionPolicy {
+
+    private final RetentionProperties properties;
+    private final ArchiveStore archiveStore;
+
+    public LocalDateTime cutoff() {
+        return YearMonth.from(LocalDateTime.now().minus(properties.getRawAge())).atDay(1).atStartOfDay();
+    }
+
+    @Nullable
+    public RawHorizon horizon() {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        if (archiveStore.isEnabled()) {
+            LocalDateTime archivedUntil = archiveStore.archivedUntil();
+            return archivedUntil == null ? null : new RawHorizon(archivedUntil, true);
+        }
+        return new RawHorizon(cutoff(), false);
+    }
+}
@@ -0,0 +1,23 @@
+package ru.practicum.stats.retention;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "stats.retention")
+public class RetentionProperties {
+
+    private boolean enabled;
+
+    private Duration rawAge = Duration.ofDays(90);
+
+    private String cron = "0 30 3 * * *";
+
+    private int partitionsAhead = 2;
+}
@@ -0,0 +1,39 @@
+package ru.practicum.stats.rollup;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public enum BucketLevel {
+    MINUTE("stats_rollup_minute", ChronoUnit.MINUTES),
+    HOUR("stats_rollup_hour", ChronoUnit.HOURS),
+    DAY("stats_rollup_day", ChronoUnit.DAYS);
+
+    private final String table;
+    private final ChronoUnit unit;
+
+    BucketLevel(String table, ChronoUnit unit) {
+        this.table = table;
+        this.unit = unit;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+
+    public LocalDateTime floor(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    public LocalDateTime ceil(LocalDateTime time) {
+        LocalDateTime floor = floor(time);
+        return floor.equals(time) ? floor : next(floor);
+    }
+
+    public LocalDateTime next(LocalDateTime bucket) {
+        return bucket.plus(1, unit);
+    }
+}
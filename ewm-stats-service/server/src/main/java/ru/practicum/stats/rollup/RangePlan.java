@@ -0,0 +1,153 @@
+package ru.practicum.stats.rollup;
+
+import lombok.Value;
+import org.springframework.lang.Nullable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits an inclusive {@code [start, end]} range into whole rollup buckets, using the coarsest level
+ * that fits, plus raw segments for the partial buckets at each end. Raw segments before the raw horizon
+ * are read from the archive, or widened to whole buckets of the finest level when there is no archive.
+ * Whole minutes inside the in-memory hot window become a single hot segment.
+ */
+public final class RangePlan {
+
+    private RangePlan() {
+    }
+
+    /**
+     * @param horizon  start of the raw data in the database, aligned to the finest level; {@code null} if nothing
+     *                 was dropped
+     * @param hotStart first minute held by the hot window; {@code null} if it is not used
+     */
+    public static List<Segment> of(LocalDateTime start, LocalDateTime end, List<BucketLevel> levels,
+                                   @Nullable RawHorizon horizon, @Nullable LocalDateTime hotStart) {
+        List<Segment> segments = new ArrayList<>();
+        LocalDateTime hotTo = BucketLevel.MINUTE.floor(end);
+        LocalDateTime hotFrom = hotStart == null ? hotTo : BucketLevel.MINUTE.ceil(start);
+        if (hotStart != null && hotFrom.isBefore(hotStart)) {
+            hotFrom = hotStart;
+        }
+        if (!hotFrom.isBefore(hotTo)) {
+            plan(start, end, true, levels, horizon, segments);
+            return segments;
+        }
+        plan(start, hotFrom, false, levels, horizon, segments);
+        segments.add(Segment.hot(hotFrom, hotTo));
+        segments.add(Segment.raw(hotTo, end, true));
+        return segments;
+    }
+
+    private static void plan(LocalDateTime start, LocalDateTime end, boolean endInclusive, List<BucketLevel> levels,
+                             @Nullable RawHorizon horizon, List<Segment> segments) {
+        BucketLevel finest = levels.get(0);
+        LocalDateTime from = finest.ceil(start);
+        LocalDateTime to = finest.floor(end);
+        if (!from.isBefore(to)) {
+            raw(start, end, endInclusive, finest, horizon, segments);
+            return;
+        }
+        if (start.isBefore(from)) {
+            raw(start, from, false, finest, horizon, segments);
+        }
+        cover(from, to, levels, 0, segments);
+        raw(to, end, endInclusive, finest, horizon, segments);
+    }
+
+    private static void raw(LocalDateTime from, LocalDateTime to, boolean toInclusive, BucketLevel finest,
+                            @Nullable RawHorizon horizon, List<Segment> segments) {
+        if (!toInclusive && !from.isBefore(to)) {
+            return;
+        }
+        if (horizon == null || !from.isBefore(horizon.getStart())) {
+            segments.add(Segment.raw(from, to, toInclusive));
+        } else if (to.isBefore(horizon.getStart()) || (!toInclusive && to.equals(horizon.getStart()))) {
+            segments.add(expired(from, to, toInclusive, finest, horizon));
+        } else {
+            segments.add(expired(from, horizon.getStart(), false, finest, horizon));
+            segments.add(Segment.raw(horizon.getStart(), to, toInclusive));
+        }
+    }
+
+    private static Segment expired(LocalDateTime from, LocalDateTime to, boolean toInclusive, BucketLevel finest,
+                                   RawHorizon horizon) {
+        if (horizon.isArchived()) {
+            return Segment.archived(from, to, toInclusive);
+        }
+        return Segment.buckets(finest, finest.floor(from),
+                toInclusive ? finest.next(finest.floor(to)) : finest.ceil(to));
+    }
+
+    private static void cover(LocalDateTime from, LocalDateTime to, List<BucketLevel> levels, int index,
+                              List<Segment> segments) {
+        BucketLevel level = levels.get(index);
+        if (index + 1 == levels.size()) {
+            segments.add(Segment.buckets(level, from, to));
+            return;
+        }
+        BucketLevel coarser = levels.get(index + 1);
+        LocalDateTime innerFrom = coarser.ceil(from);
+        LocalDateTime innerTo = coarser.floor(to);
+        if (!innerFrom.isBefore(innerTo)) {
+            segments.add(Segment.buckets(level, from, to));
+            return;
+        }
+        if (from.isBefore(innerFrom)) {
+            segments.add(Segment.buckets(level, from, innerFrom));
+        }
+        cover(innerFrom, innerTo, levels, index + 1, segments);
+        if (innerTo.isBefore(to)) {
+            segments.add(Segment.buckets(level, innerTo, to));
+        }
+    }
+
+    public enum Source {
+        DATABASE,
+        ARCHIVE,
+        HOT_WINDOW
+    }
+
+    @Value
+    public static class Segment {
+        BucketLevel level;
+        LocalDateTime from;
+        LocalDateTime to;
+        boolean toInclusive;
+        Source source;
+
+        public static Segment raw(LocalDateTime from, LocalDateTime to, boolean toInclusive) {
+            return new Segment(null, from, to, toInclusive, Source.DATABASE);
+        }
+
+        static Segment buckets(BucketLevel level, LocalDateTime from, LocalDateTime to) {
+            return new Segment(level, from, to, false, Source.DATABASE);
+        }
+
+        static Segment archived(LocalDateTime from, LocalDateTime to, boolean toInclusive) {
+            return new Segment(null, from, to, toInclusive, Source.ARCHIVE);
+        }
+
+        static Segment hot(LocalDateTime from, LocalDateTime to) {
+            return new Segment(BucketLevel.MINUTE, from, to, false, Source.HOT_WINDOW);
+        }
+
+        public boolean isRaw() {
+            return level == null;
+        }
+
+        public boolean isArchived() {
+            return source == Source.ARCHIVE;
+        }
+
+        public boolean isHot() {
+            return source == Source.HOT_WINDOW;
+        }
+
+        public boolean isInDatabase() {
+            return source == Source.DATABASE;
+        }
+    }
+}
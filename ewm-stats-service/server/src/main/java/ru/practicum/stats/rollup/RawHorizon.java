@@ -0,0 +1,22 @@
+package ru.practicum.stats.rollup;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Start of the raw hits kept in the database. Older hits are either only in rollups or, when
+ * {@code archived}, in the cold archive.
+ */
+@Value
+public class RawHorizon {
+
+    /**
+     * Lies past every raw hit, so a plan with it reads whole buckets only. Used for unique counts while sampling
+     * leaves visitors out of the raw rows.
+     */
+    public static final RawHorizon PAST_RAW = new RawHorizon(LocalDateTime.MAX, false);
+
+    LocalDateTime start;
+    boolean archived;
+}
@@ -0,0 +1,23 @@
+package ru.practicum.stats.rollup;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+@Value
+public class RollupKey implements Comparable<RollupKey> {
+
+    private static final Comparator<RollupKey> ORDER = Comparator.comparing(RollupKey::getUri)
+            .thenComparing(RollupKey::getBucket)
+            .thenComparing(RollupKey::getAppId);
+
+    long appId;
+    String uri;
+    LocalDateTime bucket;
+
+    @Override
+    public int compareTo(RollupKey other) {
+        return ORDER.compare(this, other);
+    }
+}
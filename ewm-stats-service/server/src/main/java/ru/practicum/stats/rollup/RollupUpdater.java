@@ -0,0 +1,43 @@
+package ru.practicum.stats.rollup;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.ingest.HitBatchListener;
+import ru.practicum.stats.model.Stats;
+import ru.practicum.stats.repository.RollupRepository;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "stats.rollup", name = "enabled", havingValue = "true")
+public class RollupUpdater implements HitBatchListener {
+
+    private final RollupRepository rollupRepository;
+
+    @PostConstruct
+    public void backfill() {
+        for (BucketLevel level : BucketLevel.values()) {
+            rollupRepository.backfillIfEmpty(level);
+        }
+    }
+
+    @Override
+    public void onHits(List<Stats> hits) {
+        for (BucketLevel level : BucketLevel.values()) {
+            Map<RollupKey, Long> increments = new TreeMap<>();
+            for (Stats hit : hits) {
+                if (hit.getWeight() == 0) {
+                    continue;
+                }
+                RollupKey key = new RollupKey(hit.getApp().getId(), hit.getUri(), level.floor(hit.getTimestamp()));
+                increments.merge(key, (long) hit.getWeight(), Long::sum);
+            }
+            rollupRepository.increment(level, increments);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ru.practicum.stats.rollup;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.common.dto.SeriesPoint;
+import ru.practicum.common.dto.ViewStatsSeries;
+import ru.practicum.stats.ingest.HitSampler;
+import ru.practicum.stats.model.AppUri;
+import ru.practicum.stats.repository.HllRepository;
+import ru.practicum.stats.repository.IpBitmapRepository;
+import ru.practicum.stats.repository.RawHitRepository;
+import ru.practicum.stats.repository.RollupRepository;
+import ru.practicum.stats.repository.RollupRepository.BucketCountConsumer;
+import ru.practicum.stats.retention.RetentionPolicy;
+import ru.practicum.stats.sketch.HyperLogLog;
+import ru.practicum.stats.sketch.RoaringBitmap;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Builds zero-filled per-bucket series. Buckets are whole intervals, so the first and last ones cover the full
+ * minute, hour or day around {@code start} and {@code end}. Hit counts come straight from the rollup table of the
+ * interval; unique counts from day bitmaps, from HyperLogLog sketches when approximation is allowed, or else from
+ * raw hits, which are only kept back to the retention horizon and, while sampling leaves visitors out, cannot be
+ * used for unique counts at all.
+ */
+@Component
+@RequiredArgsConstructor
+public class SeriesReader {
+
+    public static final int MAX_POINTS = 10_000;
+
+    private final RollupRepository rollupRepository;
+    private final RawHitRepository rawHitRepository;
+    private final IpBitmapRepository ipBitmapRepository;
+    private final HllRepository hllRepository;
+    private final RetentionPolicy retentionPolicy;
+    private final HitSampler hitSampler;
+    @Value("${stats.rollup.enabled:false}")
+    private boolean rollupEnabled;
+    @Value("${stats.bitmap.enabled:false}")
+    private boolean bitmapEnabled;
+
+    public List<ViewStatsSeries> findSeries(Collection<String> uris, LocalDateTime start, LocalDateTime end,
+                                            BucketLevel level, boolean unique, boolean approximate) {
+        LocalDateTime from = level.floor(start);
+        LocalDateTime to = level.next(level.floor(end));
+        long points = level.getUnit().between(from, to);
+        if (points > MAX_POINTS) {
+            throw new IllegalArgumentException(String.format("Интервал содержит %d точек, максимум %d",
+                    points, MAX_POINTS));
+        }
+        Map<AppUri, long[]> series = new HashMap<>();
+        BucketCountConsumer consumer = (app, uri, bucket, hits) ->
+                series.computeIfAbsent(new AppUri(app, uri), key -> new long[(int) points])
+                        [(int) level.getUnit().between(from, bucket)] += hits;
+        if (!unique && rollupEnabled) {
+            rollupRepository.forEachBucket(level, from, to, uris, consumer);
+        } else if (unique && level == BucketLevel.DAY && bitmapEnabled) {
+            ipBitmapRepository.forEachBucketSketch(level, from, to, uris, (app, uri, bucket, bytes) ->
+                    consumer.accept(app, uri, bucket, RoaringBitmap.fromBytes(bytes).cardinality()));
+        } else if (unique && approximate && level != BucketLevel.MINUTE) {
+            hllRepository.forEachBucketSketch(level, from, to, uris, (app, uri, bucket, bytes) ->
+                    consumer.accept(app, uri, bucket, HyperLogLog.fromBytes(bytes).estimate()));
+        } else if (unique && !hitSampler.keepsEveryVisitor()) {
+            throw new IllegalArgumentException(String.format(
+                    "Уникальные хиты с интервалом %s недоступны: выборка не сохраняет всех посетителей",
+                    level.name().toLowerCase()));
+        } else {
+            RawHorizon horizon = retentionPolicy.horizon();
+            if (horizon != null && from.isBefore(horizon.getStart())) {
+                throw new IllegalArgumentException(String.format(
+                        "Исходные хиты до %s уже удалены", horizon.getStart()));
+            }
+            rawHitRepository.forEachBucketCount(level, from, to, uris, unique, consumer);
+        }
+        return series.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<AppUri, long[]> entry) ->
+                        Arrays.stream(entry.getValue()).sum()).reversed())
+                .map(entry -> toSeries(entry.getKey(), entry.getValue(), from, level))
+                .collect(Collectors.toList());
+    }
+
+    private static ViewStatsSeries toSeries(AppUri appUri, long[] hits, LocalDateTime from, BucketLevel level) {
+        List<SeriesPoint> points = new ArrayList<>(hits.length);
+        LocalDateTime bucket = from;
+        for (long count : hits) {
+            points.add(new SeriesPoint(bucket, count));
+            bucket = level.next(bucket);
+        }
+        return new ViewStatsSeries(appUri.getApp(), appUri.getUri(), points);
+    }
+}
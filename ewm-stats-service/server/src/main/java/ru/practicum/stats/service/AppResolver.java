@@ -0,0 +1,42 @@
+package ru.practicum.stats.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.stats.model.App;
+import ru.practicum.stats.repository.AppDictionaryRepository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps application names to ids. A new name is inserted in the caller's transaction, so resolving never takes a
+ * second connection, and it is cached only after that transaction commits.
+ */
+@Component
+@RequiredArgsConstructor
+public class AppResolver {
+
+    private final AppDictionaryRepository appDictionaryRepository;
+    private final Map<String, App> apps = new ConcurrentHashMap<>();
+
+    public App resolve(String name) {
+        App app = apps.get(name);
+        if (app != null) {
+            return app;
+        }
+        App created = new App(appDictionaryRepository.findOrInsert(name), name);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apps.putIfAbsent(name, created);
+                }
+            });
+        } else {
+            apps.putIfAbsent(name, created);
+        }
+        return created;
+    }
+}
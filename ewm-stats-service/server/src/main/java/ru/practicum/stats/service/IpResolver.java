@@ -0,0 +1,106 @@
+package ru.practicum.stats.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.stats.model.IpAddress;
+import ru.practicum.stats.repository.IpDictionaryRepository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps IP addresses to dense integer ids from {@code ip_dictionary}. New addresses are inserted in the caller's
+ * transaction, so resolving never takes a second connection, and ids are cached only after that transaction
+ * commits, so a rolled back hit batch never leaves a cached id without a dictionary row.
+ */
+@Component
+public class IpResolver {
+
+    private final IpDictionaryRepository ipDictionaryRepository;
+    private final Map<IpAddress, Integer> ids;
+
+    public IpResolver(IpDictionaryRepository ipDictionaryRepository,
+                      @Value("${stats.bitmap.dictionary-cache-size:100000}") int cacheSize) {
+        this.ipDictionaryRepository = ipDictionaryRepository;
+        this.ids = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<IpAddress, Integer> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Returns ids for all addresses, inserting the ones the dictionary does not hold yet.
+     */
+    public Map<IpAddress, Integer> resolve(Collection<IpAddress> ips) {
+        Map<IpAddress, Integer> resolved = new HashMap<>();
+        Set<IpAddress> missing = cached(ips, resolved);
+        if (!missing.isEmpty()) {
+            Map<IpAddress, Integer> found = findOrCreate(missing);
+            cacheAfterCommit(found);
+            resolved.putAll(found);
+        }
+        return resolved;
+    }
+
+    /**
+     * Returns ids of the addresses the dictionary already holds and never writes, so readers can use it.
+     */
+    public Map<IpAddress, Integer> find(Collection<IpAddress> ips) {
+        Map<IpAddress, Integer> resolved = new HashMap<>();
+        Set<IpAddress> missing = cached(ips, resolved);
+        if (!missing.isEmpty()) {
+            Map<IpAddress, Integer> found = new HashMap<>();
+            ipDictionaryRepository.findIds(missing, found);
+            ids.putAll(found);
+            resolved.putAll(found);
+        }
+        return resolved;
+    }
+
+    private Set<IpAddress> cached(Collection<IpAddress> ips, Map<IpAddress, Integer> resolved) {
+        Set<IpAddress> missing = new HashSet<>();
+        for (IpAddress ip : ips) {
+            Integer id = ids.get(ip);
+            if (id == null) {
+                missing.add(ip);
+            } else {
+                resolved.put(ip, id);
+            }
+        }
+        return missing;
+    }
+
+    private Map<IpAddress, Integer> findOrCreate(Set<IpAddress> ips) {
+        Map<IpAddress, Integer> found = new HashMap<>();
+        ipDictionaryRepository.findIds(ips, found);
+        if (found.size() < ips.size()) {
+            Set<IpAddress> absent = new HashSet<>(ips);
+            absent.removeAll(found.keySet());
+            ipDictionaryRepository.insertAll(absent);
+            ipDictionaryRepository.findIds(absent, found);
+        }
+        return found;
+    }
+
+    private void cacheAfterCommit(Map<IpAddress, Integer> found) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ids.putAll(found);
+                }
+            });
+        } else {
+            ids.putAll(found);
+        }
+    }
+}
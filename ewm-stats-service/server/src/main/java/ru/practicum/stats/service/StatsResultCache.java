@@ -0,0 +1,247 @@
+package ru.practicum.stats.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.stats.ingest.HitBatchListener;
+import ru.practicum.stats.model.AppUri;
+import ru.practicum.stats.model.Stats;
+import ru.practicum.stats.model.ViewStats;
+import ru.practicum.stats.rollup.BucketLevel;
+import ru.practicum.stats.sketch.CardinalitySketch;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * LRU cache of {@code /stats} results over closed time ranges. The current hour is the open bucket: a range reaching
+ * into it is answered as the cached part before the hour plus a live query for the rest. Hit counts of the two parts
+ * add up; unique counts do not, so for those the cache keeps the per-uri visitor sketches of the closed part and
+ * unions them with the sketches of the open part. A hit committed with a request time before the open bucket is late
+ * and marks its hour with a new watermark; entries computed before the watermark of any hour they cover are dropped
+ * on their next lookup. Marks older than every cached range are pruned.
+ */
+@Component
+public class StatsResultCache implements HitBatchListener {
+
+    private static final BucketLevel OPEN_BUCKET = BucketLevel.HOUR;
+
+    private final boolean enabled;
+    private final Map<Key, Entry> entries;
+    private final AtomicLong watermark = new AtomicLong();
+    private final ConcurrentNavigableMap<LocalDateTime, Long> lateBuckets = new ConcurrentSkipListMap<>();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private volatile Pruned pruned = new Pruned(LocalDateTime.MIN, 0);
+
+    public StatsResultCache(@Value("${stats.cache.enabled:false}") boolean enabled,
+                            @Value("${stats.cache.max-entries:10000}") int maxEntries,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        });
+        this.hitCounter = meterRegistry.counter("stats.cache.hits");
+        this.missCounter = meterRegistry.counter("stats.cache.misses");
+        Gauge.builder("stats.cache.size", entries, Map::size)
+                .description("Cached /stats results")
+                .register(meterRegistry);
+        Gauge.builder("stats.cache.late-buckets", lateBuckets, Map::size)
+                .description("Hours with late hits that may invalidate cached results")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the stats for {@code [start, end]}, reading closed parts through the cache and everything else through
+     * {@code loader}, which takes an inclusive range.
+     */
+    public List<ViewStats> get(LocalDateTime start, LocalDateTime end, @Nullable List<String> uris, boolean unique,
+                               boolean approximate,
+                               BiFunction<LocalDateTime, LocalDateTime, List<ViewStats>> loader) {
+        LocalDateTime open = OPEN_BUCKET.floor(LocalDateTime.now());
+        if (end.isBefore(open)) {
+            return cached(start, end, uris, unique, approximate, false,
+                    (from, to) -> List.copyOf(loader.apply(from, to)));
+        }
+        if (unique || !start.isBefore(open)) {
+            return loader.apply(start, end);
+        }
+        Map<AppUri, Long> hits = new HashMap<>();
+        for (ViewStats stats : cached(start, open.minus(1, ChronoUnit.MICROS), uris, false, approximate, false,
+                (from, to) -> List.copyOf(loader.apply(from, to)))) {
+            hits.merge(new AppUri(stats.getApp(), stats.getUri()), stats.getHits(), Long::sum);
+        }
+        for (ViewStats stats : loader.apply(open, end)) {
+            hits.merge(new AppUri(stats.getApp(), stats.getUri()), stats.getHits(), Long::sum);
+        }
+        return hits.entrySet().stream()
+                .map(entry -> new ViewStats(entry.getKey().getApp(), entry.getKey().getUri(), entry.getValue()))
+                .sorted(Comparator.comparing(ViewStats::getHits).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the unique counts for {@code [start, end]} from the visitor sketches {@code loader} collects for an
+     * inclusive range. Closed ranges are cached as counts; for a range reaching into the open bucket the sketches of
+     * the closed part are cached and merged with fresh ones of the open part.
+     */
+    public <T extends CardinalitySketch<T>> List<ViewStats> getUnique(
+            LocalDateTime start, LocalDateTime end, @Nullable List<String> uris, boolean approximate,
+            BiFunction<LocalDateTime, LocalDateTime, Map<AppUri, T>> loader) {
+        LocalDateTime open = OPEN_BUCKET.floor(LocalDateTime.now());
+        if (end.isBefore(open)) {
+            return cached(start, end, uris, true, approximate, false,
+                    (from, to) -> CardinalitySketch.countDistinct(loader.apply(from, to)));
+        }
+        if (!start.isBefore(open)) {
+            return CardinalitySketch.countDistinct(loader.apply(start, end));
+        }
+        Map<AppUri, T> closed = cached(start, open.minus(1, ChronoUnit.MICROS), uris, true, approximate, true,
+                (from, to) -> Map.copyOf(loader.apply(from, to)));
+        Map<AppUri, T> merged = loader.apply(open, end);
+        closed.forEach((key, sketch) -> merged.merge(key, sketch.copy(), (recent, old) -> {
+            recent.merge(old);
+            return recent;
+        }));
+        return CardinalitySketch.countDistinct(merged);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> V cached(LocalDateTime start, LocalDateTime end, @Nullable List<String> uris, boolean unique,
+                         boolean approximate, boolean sketches, BiFunction<LocalDateTime, LocalDateTime, V> loader) {
+        Key key = new Key(start, end, uris == null ? null : uris.stream().sorted().distinct()
+                .collect(Collectors.toList()), unique, approximate, sketches);
+        Entry entry = entries.get(key);
+        if (entry != null && isFresh(entry, start, end)) {
+            hitCounter.increment();
+            return (V) entry.getValue();
+        }
+        missCounter.increment();
+        long current = watermark.get();
+        V value = loader.apply(start, end);
+        entries.put(key, new Entry(current, value));
+        return value;
+    }
+
+    private boolean isFresh(Entry entry, LocalDateTime start, LocalDateTime end) {
+        Pruned last = pruned;
+        if (start.isBefore(last.getBefore()) && entry.getWatermark() < last.getWatermark()) {
+            return false;
+        }
+        return entry.getWatermark() >= lateBuckets.subMap(OPEN_BUCKET.floor(start), true, end, true).values()
+                .stream()
+                .mapToLong(Long::longValue)
+                .max()
+                .orElse(0);
+    }
+
+    /**
+     * Drops late marks of hours before every cached range. An entry still being loaded when its marks are dropped
+     * is caught by the pruned watermark instead.
+     */
+    @Scheduled(fixedDelayString = "${stats.cache.prune-interval:60000}")
+    public void prune() {
+        LocalDateTime oldest;
+        synchronized (entries) {
+            oldest = entries.keySet().stream()
+                    .map(Key::getStart)
+                    .min(Comparator.naturalOrder())
+                    .map(OPEN_BUCKET::floor)
+                    .orElse(OPEN_BUCKET.floor(LocalDateTime.now()));
+        }
+        Map<LocalDateTime, Long> expired = new HashMap<>(lateBuckets.headMap(oldest));
+        if (expired.isEmpty()) {
+            return;
+        }
+        Pruned last = pruned;
+        long max = expired.values().stream().mapToLong(Long::longValue).max().orElse(0);
+        pruned = new Pruned(oldest.isAfter(last.getBefore()) ? oldest : last.getBefore(),
+                Math.max(max, last.getWatermark()));
+        expired.forEach(lateBuckets::remove);
+    }
+
+    @Override
+    public void onHits(List<Stats> hits) {
+        if (!enabled) {
+            return;
+        }
+        List<LocalDateTime> times = hits.stream().map(Stats::getTimestamp).collect(Collectors.toList());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    markLate(times);
+                }
+            });
+        } else {
+            markLate(times);
+        }
+    }
+
+    /**
+     * Runs once the hits are visible, so the open bucket is taken at commit time: a hit that was current when it
+     * was written but commits after the hour turned still invalidates the hour it landed in.
+     */
+    private void markLate(List<LocalDateTime> times) {
+        LocalDateTime open = OPEN_BUCKET.floor(LocalDateTime.now());
+        Set<LocalDateTime> late = times.stream()
+                .filter(time -> time.isBefore(open))
+                .map(OPEN_BUCKET::floor)
+                .collect(Collectors.toSet());
+        if (late.isEmpty()) {
+            return;
+        }
+        long next = watermark.incrementAndGet();
+        late.forEach(bucket -> lateBuckets.put(bucket, next));
+    }
+
+    @lombok.Value
+    private static class Key {
+        LocalDateTime start;
+        LocalDateTime end;
+        List<String> uris;
+        boolean unique;
+        boolean approximate;
+        boolean sketches;
+    }
+
+    /**
+     * Cached counts, or the per-uri visitor sketches of a closed part, which are never modified once cached.
+     */
+    @lombok.Value
+    private static class Entry {
+        long watermark;
+        Object value;
+    }
+
+    @lombok.Value
+    private static class Pruned {
+        LocalDateTime before;
+        long watermark;
+    }
+}
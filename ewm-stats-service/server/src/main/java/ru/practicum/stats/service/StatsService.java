@@ -2,15 +2,38 @@ package ru.practicum.stats.service;
 
 
 import ru.practicum.common.dto.EndpointHit;
+import ru.practicum.common.dto.HitDto;
+import ru.practicum.common.dto.LatencyStats;
 import ru.practicum.common.dto.StatsDto;
+import ru.practicum.common.dto.StatsQueryRequest;
+import ru.practicum.common.dto.StatsRangeResult;
 import ru.practicum.common.dto.ViewStats;
+import ru.practicum.common.dto.ViewStatsSeries;
 
+import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatsService {
 
     EndpointHit createHit(EndpointHit endpointHitDto);
 
+    int createHits(Iterator<EndpointHit> endpointHitDtos);
+
+    int createHitDtos(Iterator<HitDto> hitDtos);
+
     List<ViewStats> getStats(StatsDto statsDto);
 
+    void streamStats(StatsDto statsDto, Consumer<ViewStats> consumer);
+
+    List<ViewStats> getTopStats(LocalDateTime start, LocalDateTime end, int k, boolean unique);
+
+    List<ViewStatsSeries> getSeries(List<String> uris, LocalDateTime start, LocalDateTime end, String interval,
+                                    boolean unique, Boolean approximate);
+
+    List<StatsRangeResult> queryStats(StatsQueryRequest request);
+
+    List<LatencyStats> getLatency(LocalDateTime start, LocalDateTime end, List<String> uris);
+
 }
\ No newline at end of file
@@ -1,42 +1,168 @@
 package ru.practicum.stats.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.common.dto.EndpointHit;
+import ru.practicum.common.dto.HitDto;
+import ru.practicum.common.dto.LatencyStats;
 import ru.practicum.common.dto.StatsDto;
+import ru.practicum.common.dto.StatsQueryRequest;
+import ru.practicum.common.dto.StatsRangeQuery;
+import ru.practicum.common.dto.StatsRangeResult;
 import ru.practicum.common.dto.ViewStats;
-import ru.practicum.stats.exception.AppNotFoundException;
+import ru.practicum.common.dto.ViewStatsSeries;
+import ru.practicum.stats.archive.ArchiveStore;
+import ru.practicum.stats.hot.HotWindow;
+import ru.practicum.stats.ingest.DedupWindow;
+import ru.practicum.stats.ingest.HitIngestor;
+import ru.practicum.stats.ingest.HitSampler;
+import ru.practicum.stats.ingest.IngestProperties;
 import ru.practicum.stats.mapper.StatsMapper;
 import ru.practicum.stats.model.App;
+import ru.practicum.stats.model.AppUri;
 import ru.practicum.stats.model.Stats;
-import ru.practicum.stats.repository.AppRepository;
+import ru.practicum.stats.repository.RawHitRepository;
+import ru.practicum.stats.repository.RollupRepository;
 import ru.practicum.stats.repository.StatsRepository;
+import ru.practicum.stats.retention.RetentionPolicy;
+import ru.practicum.stats.rollup.BucketLevel;
+import ru.practicum.stats.rollup.RangePlan;
+import ru.practicum.stats.rollup.RawHorizon;
+import ru.practicum.stats.rollup.SeriesReader;
+import ru.practicum.stats.rollup.RangePlan.Segment;
+import ru.practicum.stats.sketch.BitmapStatsReader;
+import ru.practicum.stats.sketch.HllStatsReader;
+import ru.practicum.stats.sketch.LatencyReader;
+import ru.practicum.stats.sketch.TopUriReader;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class StatsServiceImpl implements StatsService {
 
+    private static final int MAX_QUERY_RANGES = 1000;
+    private static final List<BucketLevel> ROLLUP_LEVELS = List.of(BucketLevel.MINUTE, BucketLevel.HOUR, BucketLevel.DAY);
+
     private final StatsRepository statsRepository;
-    private final AppRepository appRepository;
+    private final RollupRepository rollupRepository;
+    private final RawHitRepository rawHitRepository;
+    private final AppResolver appResolver;
+    private final HitIngestor hitIngestor;
+    private final DedupWindow dedupWindow;
+    private final HitSampler hitSampler;
+    private final TransactionTemplate transactionTemplate;
+    private final IngestProperties ingestProperties;
+    private final Validator validator;
+    private final HllStatsReader hllStatsReader;
+    private final BitmapStatsReader bitmapStatsReader;
+    private final RetentionPolicy retentionPolicy;
+    private final ArchiveStore archiveStore;
+    private final HotWindow hotWindow;
+    private final TopUriReader topUriReader;
+    private final UriPatternResolver uriPatternResolver;
+    private final SeriesReader seriesReader;
+    private final StatsResultCache resultCache;
+    private final LatencyReader latencyReader;
+    @Value("${stats.rollup.enabled:false}")
+    private boolean rollupEnabled;
+    @Value("${stats.hll.enabled:false}")
+    private boolean hllEnabled;
+    @Value("${stats.hll.approximate-by-default:false}")
+    private boolean approximateByDefault;
+    @Value("${stats.bitmap.enabled:false}")
+    private boolean bitmapEnabled;
+    @Value("${stats.top.enabled:false}")
+    private boolean topEnabled;
 
     @Override
-    @Transactional
     public EndpointHit createHit(EndpointHit endpointHitDto) {
-        String nameApp = endpointHitDto.getApp();
-        Optional<App> appName = appRepository.findByName(nameApp);
-        App app;
-        if (appName.isEmpty()) {
-            app = appRepository.save(new App(nameApp));
-        } else {
-            app = appName.orElseThrow(() -> new AppNotFoundException("App not found: " + nameApp));
+        return inIngestTransaction(() -> {
+            App app = appResolver.resolve(endpointHitDto.getApp());
+            Stats hit = StatsMapper.toStats(endpointHitDto, app);
+            if (dedupWindow.accept(hit)) {
+                hitIngestor.ingest(hit);
+            }
+            return StatsMapper.toEndpointHitDto(hit);
+        });
+    }
+
+    @Override
+    public int createHits(Iterator<EndpointHit> endpointHitDtos) {
+        return ingestAll(endpointHitDtos, endpointHitDto ->
+                StatsMapper.toStats(endpointHitDto, appResolver.resolve(endpointHitDto.getApp())));
+    }
+
+    @Override
+    public int createHitDtos(Iterator<HitDto> hitDtos) {
+        return ingestAll(hitDtos, hitDto -> StatsMapper.toStats(hitDto, appResolver.resolve(hitDto.getApp())));
+    }
+
+    /**
+     * Ingestors that write later, such as the hit log, are called outside a transaction, so accepting hits does
+     * not wait for a database connection.
+     */
+    private <T> T inIngestTransaction(Supplier<T> action) {
+        if (!hitIngestor.writesInCallerTransaction()) {
+            return action.get();
         }
-        Stats saved = statsRepository.save(StatsMapper.toStats(endpointHitDto, app));
-        return StatsMapper.toEndpointHitDto(saved);
+        return transactionTemplate.execute(status -> action.get());
+    }
+
+    /**
+     * Reads the body in chunks of the ingest batch size and commits each chunk on its own, so a large or slow
+     * upload never holds a transaction open while it is being read. A chunk is written only once all of its hits
+     * are valid; when a later hit is invalid, the chunks before it stay saved and the error says how many.
+     */
+    private <T> int ingestAll(Iterator<T> dtos, Function<T, Stats> mapper) {
+        int batchSize = ingestProperties.getBatchSize();
+        List<Stats> chunk = new ArrayList<>(batchSize);
+        int saved = 0;
+        while (dtos.hasNext()) {
+            T dto = dtos.next();
+            int index = saved + chunk.size();
+            validate(dto, index, saved);
+            try {
+                chunk.add(mapper.apply(dto));
+            } catch (IllegalArgumentException e) {
+                throw invalidHit(index, e.getMessage(), saved);
+            }
+            if (chunk.size() == batchSize) {
+                saved += ingestChunk(chunk);
+            }
+        }
+        return saved + ingestChunk(chunk);
+    }
+
+    private int ingestChunk(List<Stats> chunk) {
+        int size = chunk.size();
+        List<Stats> accepted = chunk.stream().filter(dedupWindow::accept).collect(Collectors.toList());
+        if (!accepted.isEmpty()) {
+            inIngestTransaction(() -> {
+                hitIngestor.ingestAll(accepted);
+                return null;
+            });
+        }
+        chunk.clear();
+        return size;
     }
 
     @Transactional(readOnly = true)
@@ -44,19 +170,185 @@ public class StatsServiceImpl implements StatsService {
     public List<ViewStats> getStats(StatsDto statsDto) {
         List<ru.practicum.stats.model.ViewStats> stats;
         Boolean unique = statsDto.getUnique();
-        List<String> uris = statsDto.getUris();
+        List<String> uris = uriPatternResolver.expand(statsDto.getUris());
         LocalDateTime start = statsDto.getStart();
         LocalDateTime end = statsDto.getEnd();
-        if (end.isBefore(start)) {
+        checkRange(start, end);
+        if (uris != null && uris.isEmpty()) {
+            return new ArrayList<>();
+        }
+        boolean approximate = unique && isApproximate(statsDto);
+        if (resultCache.isEnabled() && approximate) {
+            stats = resultCache.getUnique(start, end, uris, true,
+                    (from, to) -> hllStatsReader.collectSketches(from, to, uris));
+        } else if (resultCache.isEnabled() && unique && bitmapEnabled) {
+            stats = resultCache.getUnique(start, end, uris, false,
+                    (from, to) -> bitmapStatsReader.collectIps(from, to, uris));
+        } else if (resultCache.isEnabled()) {
+            stats = resultCache.get(start, end, uris, unique, approximate,
+                    (from, to) -> findStats(from, to, uris, unique, approximate));
+        } else {
+            stats = findStats(start, end, uris, unique, approximate);
+        }
+        return StatsMapper.toViewStatsDtos(stats);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public void streamStats(StatsDto statsDto, Consumer<ViewStats> consumer) {
+        Boolean unique = statsDto.getUnique();
+        List<String> uris = uriPatternResolver.expand(statsDto.getUris());
+        LocalDateTime start = statsDto.getStart();
+        LocalDateTime end = statsDto.getEnd();
+        checkRange(start, end);
+        if (uris != null && uris.isEmpty()) {
+            return;
+        }
+        RawHorizon horizon = retentionPolicy.horizon();
+        boolean expired = horizon != null && start.isBefore(horizon.getStart());
+        if (unique ? expired || isApproximate(statsDto) || !hitSampler.keepsEveryVisitor()
+                : expired && horizon.isArchived()) {
+            getStats(statsDto).forEach(consumer);
+        } else if (!unique && rollupEnabled) {
+            rollupRepository.streamStats(RangePlan.of(start, end, ROLLUP_LEVELS, horizon, null), uris,
+                    viewStats -> consumer.accept(StatsMapper.toViewStatsDto(viewStats)));
+        } else {
+            try (Stream<ru.practicum.stats.model.ViewStats> stats = streamRaw(unique, start, end, uris)) {
+                stats.map(StatsMapper::toViewStatsDto).forEach(consumer);
+            }
+        }
+    }
+
+    /**
+     * Ranks only the uris kept by the heavy-hitters sketches, so the cost does not grow with the number of uris.
+     * Their counts are then computed exactly, the same way as for {@link #getStats}.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public List<ViewStats> getTopStats(LocalDateTime start, LocalDateTime end, int k, boolean unique) {
+        checkRange(start, end);
+        int maxK = topEnabled ? topUriReader.getCapacity() : Integer.MAX_VALUE;
+        if (k < 1 || k > maxK) {
+            throw new IllegalArgumentException(String.format("Параметр k=%d должен быть от 1 до %d", k, maxK));
+        }
+        List<String> uris = null;
+        if (topEnabled) {
+            uris = topUriReader.findCandidates(start, end);
+            if (uris.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+        List<ViewStats> stats = getStats(StatsDto.builder().start(start).end(end).uris(uris).unique(unique).build());
+        return stats.size() > k ? new ArrayList<>(stats.subList(0, k)) : stats;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<ViewStatsSeries> getSeries(List<String> uris, LocalDateTime start, LocalDateTime end,
+                                           String interval, boolean unique, @Nullable Boolean approximate) {
+        checkRange(start, end);
+        BucketLevel level = Arrays.stream(BucketLevel.values())
+                .filter(value -> value.name().equalsIgnoreCase(interval))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(String
+                        .format("Неизвестный интервал %s, допустимы minute, hour и day", interval)));
+        List<String> expanded = uriPatternResolver.expand(uris);
+        if (expanded.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return seriesReader.findSeries(expanded, start, end, level, unique, isApproximate(approximate));
+    }
+
+    /**
+     * Ranges that lie within the raw hits are counted together in a single statement. A range reaching before
+     * the raw horizon is answered on its own, the same way as {@link #getStats}.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public List<StatsRangeResult> queryStats(StatsQueryRequest request) {
+        List<StatsRangeQuery> ranges = request.getRanges();
+        if (ranges.size() > MAX_QUERY_RANGES) {
             throw new IllegalArgumentException(String
-                    .format("Ошибка в интервале старта, время начала=%s не может быть меньше окончания=%s", start, end));
+                    .format("Слишком много интервалов в запросе: %d, допустимо не больше %d",
+                            ranges.size(), MAX_QUERY_RANGES));
         }
-        if (unique) {
+        ranges.forEach(range -> checkRange(range.getStart(), range.getEnd()));
+        boolean unique = request.isUnique();
+        RawHorizon horizon = retentionPolicy.horizon();
+        List<Integer> rawIndexes = new ArrayList<>();
+        List<StatsRangeQuery> rawRanges = new ArrayList<>();
+        List<List<StatsRangeResult>> results = new ArrayList<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            int index = i;
+            StatsRangeQuery range = ranges.get(i);
+            results.add(new ArrayList<>());
+            boolean rawComplete = !unique || hitSampler.keepsEveryVisitor();
+            if (rawComplete && (horizon == null || !range.getStart().isBefore(horizon.getStart()))) {
+                rawIndexes.add(i);
+                rawRanges.add(range);
+            } else {
+                findStats(range.getStart(), range.getEnd(), List.of(range.getUri()), unique,
+                        unique && isApproximate((Boolean) null))
+                        .forEach(stats -> results.get(index).add(toRangeResult(range, stats.getApp(),
+                                stats.getHits())));
+            }
+        }
+        if (!rawRanges.isEmpty()) {
+            rawHitRepository.forEachRangeCount(rawRanges, unique, (index, app, hits) -> {
+                StatsRangeQuery range = rawRanges.get(index);
+                results.get(rawIndexes.get(index)).add(toRangeResult(range, app, hits));
+            });
+        }
+        return results.stream().flatMap(List::stream).collect(Collectors.toList());
+    }
+
+    private static StatsRangeResult toRangeResult(StatsRangeQuery range, String app, long hits) {
+        return StatsRangeResult.builder()
+                .app(app)
+                .uri(range.getUri())
+                .start(range.getStart())
+                .end(range.getEnd())
+                .hits(hits)
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<LatencyStats> getLatency(LocalDateTime start, LocalDateTime end, @Nullable List<String> uris) {
+        checkRange(start, end);
+        List<String> expanded = uriPatternResolver.expand(uris);
+        if (expanded != null && expanded.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return latencyReader.findLatency(start, end, expanded).entrySet().stream()
+                .map(entry -> StatsMapper.toLatencyStats(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparing(LatencyStats::getCount).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private List<ru.practicum.stats.model.ViewStats> findStats(LocalDateTime start, LocalDateTime end,
+                                                              @Nullable List<String> uris, boolean unique,
+                                                              boolean approximate) {
+        List<ru.practicum.stats.model.ViewStats> stats;
+        if (unique && approximate) {
+            stats = hllStatsReader.findStatsUnique(start, end, uris);
+        } else if (unique && bitmapEnabled) {
+            stats = bitmapStatsReader.findStatsUnique(start, end, uris);
+        } else if (unique) {
             if (uris == null) {
                 stats = statsRepository.findStatsUniqueWithOutUris(start, end);
             } else {
                 stats = statsRepository.findStatsUnique(start, end, uris);
             }
+        } else if (rollupEnabled) {
+            List<Segment> plan = RangePlan.of(start, end, ROLLUP_LEVELS, retentionPolicy.horizon(), hotWindow.start());
+            Map<AppUri, Long> hits = archiveStore.countHits(plan, uris);
+            for (Segment segment : plan) {
+                if (segment.isHot()) {
+                    hotWindow.countHits(segment, uris).forEach((key, count) -> hits.merge(key, count, Long::sum));
+                }
+            }
+            stats = withHits(rollupRepository.findStats(plan, uris), hits);
         } else {
             if (uris == null) {
                 stats = statsRepository.findStatsWithOutUris(start, end);
@@ -64,7 +356,67 @@ public class StatsServiceImpl implements StatsService {
                 stats = statsRepository.findStats(start, end, uris);
             }
         }
-        return StatsMapper.toViewStatsDtos(stats);
+        return stats;
+    }
+
+    private Stream<ru.practicum.stats.model.ViewStats> streamRaw(boolean unique, LocalDateTime start, LocalDateTime end,
+                                                                @Nullable List<String> uris) {
+        if (unique) {
+            return uris == null ? statsRepository.streamStatsUniqueWithOutUris(start, end)
+                    : statsRepository.streamStatsUnique(start, end, uris);
+        }
+        return uris == null ? statsRepository.streamStatsWithOutUris(start, end)
+                : statsRepository.streamStats(start, end, uris);
+    }
+
+    private static void checkRange(LocalDateTime start, LocalDateTime end) {
+        if (end.isBefore(start)) {
+            throw new IllegalArgumentException(String
+                    .format("Ошибка в интервале старта, время начала=%s не может быть меньше окончания=%s", start, end));
+        }
+    }
+
+    private static List<ru.practicum.stats.model.ViewStats> withHits(List<ru.practicum.stats.model.ViewStats> stats,
+                                                                Map<AppUri, Long> hits) {
+        if (hits.isEmpty()) {
+            return stats;
+        }
+        stats.forEach(s -> hits.merge(new AppUri(s.getApp(), s.getUri()), s.getHits(), Long::sum));
+        return hits.entrySet().stream()
+                .map(entry -> new ru.practicum.stats.model.ViewStats(entry.getKey().getApp(), entry.getKey().getUri(),
+                        entry.getValue()))
+                .sorted(Comparator.comparing(ru.practicum.stats.model.ViewStats::getHits).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private boolean isApproximate(StatsDto statsDto) {
+        return isApproximate(statsDto.getApproximate());
+    }
+
+    /**
+     * Unique counts are estimated from HyperLogLog sketches when asked to, and also when sampling leaves visitors
+     * out of the raw rows and there are no bitmaps to count them exactly.
+     */
+    private boolean isApproximate(@Nullable Boolean approximate) {
+        if (hllEnabled && !bitmapEnabled && !hitSampler.keepsEveryVisitor()) {
+            return true;
+        }
+        return hllEnabled && (approximate == null ? approximateByDefault : approximate);
+    }
+
+    private <T> void validate(T dto, int index, int saved) {
+        Set<ConstraintViolation<T>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            String errors = violations.stream()
+                    .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                    .collect(Collectors.joining(", "));
+            throw invalidHit(index, errors, saved);
+        }
+    }
+
+    private static IllegalArgumentException invalidHit(int index, String errors, int saved) {
+        return new IllegalArgumentException(String.format("Invalid hit #%d: %s, %d hits before it were saved",
+                index, errors, saved));
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+package ru.practicum.stats.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.stats.ingest.HitBatchListener;
+import ru.practicum.stats.model.Stats;
+import ru.practicum.stats.repository.UriDictionaryRepository;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Expands uri patterns such as {@code /events/*} against a sorted dictionary of every uri ever hit. The part before
+ * the first wildcard is a range of the dictionary, so expansion only visits uris sharing that prefix; {@code *} and
+ * {@code ?} after it are matched as a glob. New uris join the dictionary once their hit batch commits.
+ */
+@Component
+public class UriPatternResolver implements HitBatchListener {
+
+    private final UriDictionaryRepository uriDictionaryRepository;
+    private final boolean enabled;
+    private final NavigableSet<String> uris = new ConcurrentSkipListSet<>();
+
+    public UriPatternResolver(UriDictionaryRepository uriDictionaryRepository,
+                              @Value("${stats.uri-patterns.enabled:false}") boolean enabled) {
+        this.uriDictionaryRepository = uriDictionaryRepository;
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        if (uriDictionaryRepository.isEmpty()) {
+            uriDictionaryRepository.insertFromStats();
+        }
+        uriDictionaryRepository.forEachUri(uris::add);
+    }
+
+    @Override
+    public void onHits(List<Stats> hits) {
+        if (!enabled) {
+            return;
+        }
+        Set<String> added = hits.stream()
+                .map(Stats::getUri)
+                .filter(uri -> !uris.contains(uri))
+                .collect(Collectors.toSet());
+        if (added.isEmpty()) {
+            return;
+        }
+        uriDictionaryRepository.insertAll(added);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    uris.addAll(added);
+                }
+            });
+        } else {
+            uris.addAll(added);
+        }
+    }
+
+    /**
+     * Replaces patterns with the matching known uris; plain uris are kept as they are.
+     */
+    @Nullable
+    public List<String> expand(@Nullable List<String> requested) {
+        if (!enabled || requested == null || requested.stream().noneMatch(UriPatternResolver::isPattern)) {
+            return requested;
+        }
+        Set<String> expanded = new LinkedHashSet<>();
+        for (String uri : requested) {
+            if (isPattern(uri)) {
+                addMatches(uri, expanded);
+            } else {
+                expanded.add(uri);
+            }
+        }
+        return new ArrayList<>(expanded);
+    }
+
+    private void addMatches(String pattern, Set<String> target) {
+        int wildcard = firstWildcard(pattern);
+        String prefix = pattern.substring(0, wildcard);
+        Pattern glob = pattern.equals(prefix + "*") ? null : glob(pattern);
+        for (String uri : uris.tailSet(prefix, true)) {
+            if (!uri.startsWith(prefix)) {
+                break;
+            }
+            if (glob == null || glob.matcher(uri).matches()) {
+                target.add(uri);
+            }
+        }
+    }
+
+    private static boolean isPattern(String uri) {
+        return firstWildcard(uri) < uri.length();
+    }
+
+    private static int firstWildcard(String uri) {
+        for (int i = 0; i < uri.length(); i++) {
+            if (uri.charAt(i) == '*' || uri.charAt(i) == '?') {
+                return i;
+            }
+        }
+        return uri.length();
+    }
+
+    private static Pattern glob(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        int literal = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?') {
+                regex.append(Pattern.quote(pattern.substring(literal, i))).append(c == '*' ? ".*" : ".");
+                literal = i + 1;
+            }
+        }
+        return Pattern.compile(regex.append(Pattern.quote(pattern.substring(literal))).toString(), Pattern.DOTALL);
+    }
+}
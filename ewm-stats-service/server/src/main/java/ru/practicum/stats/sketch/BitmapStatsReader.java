@@ -0,0 +1,92 @@
+package ru.practicum.stats.sketch;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.archive.ArchiveStore;
+import ru.practicum.stats.hot.HotWindow;
+import ru.practicum.stats.ingest.HitSampler;
+import ru.practicum.stats.model.AppUri;
+import ru.practicum.stats.model.IpAddress;
+import ru.practicum.stats.model.ViewStats;
+import ru.practicum.stats.repository.IpBitmapRepository;
+import ru.practicum.stats.repository.RawHitRepository;
+import ru.practicum.stats.retention.RetentionPolicy;
+import ru.practicum.stats.rollup.RangePlan;
+import ru.practicum.stats.rollup.RangePlan.Segment;
+import ru.practicum.stats.rollup.RawHorizon;
+import ru.practicum.stats.service.IpResolver;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Component
+@RequiredArgsConstructor
+public class BitmapStatsReader {
+
+    /**
+     * Archived addresses missing from {@code ip_dictionary} get ids counted down from here for one query. The
+     * bitmap treats ids as unsigned and the dictionary only hands out positive ones, so they never collide.
+     */
+    private static final int LOCAL_IDS_FROM = -1;
+
+    private final IpBitmapRepository ipBitmapRepository;
+    private final RawHitRepository rawHitRepository;
+    private final RetentionPolicy retentionPolicy;
+    private final ArchiveStore archiveStore;
+    private final IpResolver ipResolver;
+    private final HotWindow hotWindow;
+    private final HitSampler hitSampler;
+
+    public List<ViewStats> findStatsUnique(LocalDateTime start, LocalDateTime end, @Nullable Collection<String> uris) {
+        return CardinalitySketch.countDistinct(collectIps(start, end, uris));
+    }
+
+    /**
+     * Per-uri bitmaps of the visitors of {@code [start, end]}, for callers that merge them with other ranges. While
+     * sampling leaves visitors out of the raw rows, and so out of a rebuilt hot window, the range is widened to the
+     * whole day bitmaps it touches instead.
+     */
+    public Map<AppUri, RoaringBitmap> collectIps(LocalDateTime start, LocalDateTime end,
+                                                 @Nullable Collection<String> uris) {
+        Map<AppUri, RoaringBitmap> bitmaps = new HashMap<>();
+        Map<AppUri, Set<IpAddress>> archivedIps = new HashMap<>();
+        boolean raw = hitSampler.keepsEveryVisitor();
+        for (Segment segment : RangePlan.of(start, end, List.of(BitmapUpdater.LEVEL),
+                raw ? retentionPolicy.horizon() : RawHorizon.PAST_RAW, raw ? hotWindow.start() : null)) {
+            if (segment.isHot()) {
+                hotWindow.collectIps(segment, uris, bitmaps);
+            } else if (segment.isArchived()) {
+                archiveStore.forEach(segment, uris, (app, uri, ip, weight) ->
+                        archivedIps.computeIfAbsent(new AppUri(app, uri), key -> new HashSet<>()).add(IpAddress.fromLegacy(ip)));
+            } else if (segment.isRaw()) {
+                rawHitRepository.forEachDistinctIpId(segment, uris, (app, uri, ipId) ->
+                        bitmap(bitmaps, app, uri).add(ipId));
+            } else {
+                ipBitmapRepository.forEachSketch(segment, uris, (app, uri, bytes) ->
+                        bitmap(bitmaps, app, uri).merge(RoaringBitmap.fromBytes(bytes)));
+            }
+        }
+        if (!archivedIps.isEmpty()) {
+            Map<IpAddress, Integer> ipIds = new HashMap<>(ipResolver.find(archivedIps.values().stream()
+                    .flatMap(Set::stream)
+                    .collect(Collectors.toSet())));
+            int[] nextLocalId = {LOCAL_IDS_FROM};
+            archivedIps.forEach((appUri, ips) -> {
+                RoaringBitmap bitmap = bitmap(bitmaps, appUri.getApp(), appUri.getUri());
+                ips.forEach(ip -> bitmap.add(ipIds.computeIfAbsent(ip, key -> nextLocalId[0]--)));
+            });
+        }
+        return bitmaps;
+    }
+
+    private static RoaringBitmap bitmap(Map<AppUri, RoaringBitmap> bitmaps, String app, String uri) {
+        return bitmaps.computeIfAbsent(new AppUri(app, uri), key -> new RoaringBitmap());
+    }
+}
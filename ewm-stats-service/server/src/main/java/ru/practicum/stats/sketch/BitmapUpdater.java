@@ -0,0 +1,57 @@
+package ru.practicum.stats.sketch;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.ingest.HitBatchListener;
+import ru.practicum.stats.model.IpAddress;
+import ru.practicum.stats.model.Stats;
+import ru.practicum.stats.repository.IpBitmapRepository;
+import ru.practicum.stats.repository.IpDictionaryRepository;
+import ru.practicum.stats.repository.RawHitRepository;
+import ru.practicum.stats.rollup.BucketLevel;
+import ru.practicum.stats.rollup.RollupKey;
+import ru.practicum.stats.service.IpResolver;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "stats.bitmap", name = "enabled", havingValue = "true")
+public class BitmapUpdater implements HitBatchListener {
+
+    static final BucketLevel LEVEL = BucketLevel.DAY;
+
+    private final IpBitmapRepository ipBitmapRepository;
+    private final IpDictionaryRepository ipDictionaryRepository;
+    private final RawHitRepository rawHitRepository;
+    private final IpResolver ipResolver;
+
+    @PostConstruct
+    public void backfill() {
+        if (!ipBitmapRepository.isEmpty()) {
+            return;
+        }
+        ipDictionaryRepository.insertFromStats();
+        Map<RollupKey, RoaringBitmap> bitmaps = new TreeMap<>();
+        rawHitRepository.forEachHitWithIpId((appId, uri, ipId, time) ->
+                bitmaps.computeIfAbsent(new RollupKey(appId, uri, LEVEL.floor(time)), k -> new RoaringBitmap())
+                        .add(ipId));
+        ipBitmapRepository.merge(LEVEL, bitmaps, RoaringBitmap::fromBytes);
+    }
+
+    @Override
+    public void onHits(List<Stats> hits) {
+        Map<IpAddress, Integer> ipIds = ipResolver.resolve(hits.stream().map(Stats::getIp).collect(Collectors.toSet()));
+        Map<RollupKey, RoaringBitmap> bitmaps = new TreeMap<>();
+        for (Stats hit : hits) {
+            bitmaps.computeIfAbsent(new RollupKey(hit.getApp().getId(), hit.getUri(), LEVEL.floor(hit.getTimestamp())),
+                    k -> new RoaringBitmap()).add(ipIds.get(hit.getIp()));
+        }
+        ipBitmapRepository.merge(LEVEL, bitmaps, RoaringBitmap::fromBytes);
+    }
+}
@@ -0,0 +1,28 @@
+package ru.practicum.stats.sketch;
+
+import ru.practicum.stats.model.AppUri;
+import ru.practicum.stats.model.ViewStats;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Mergeable summary of a set of visitors that counts the distinct ones, so unique counts of adjacent ranges can be
+ * combined without reading either range again.
+ */
+public interface CardinalitySketch<T extends CardinalitySketch<T>> extends MergeableSketch<T> {
+
+    long cardinality();
+
+    T copy();
+
+    static List<ViewStats> countDistinct(Map<AppUri, ? extends CardinalitySketch<?>> sketches) {
+        return sketches.entrySet().stream()
+                .map(entry -> new ViewStats(entry.getKey().getApp(), entry.getKey().getUri(),
+                        entry.getValue().cardinality()))
+                .sorted(Comparator.comparing(ViewStats::getHits).reversed())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,64 @@
+package ru.practicum.stats.sketch;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.archive.ArchiveStore;
+import ru.practicum.stats.ingest.HitSampler;
+import ru.practicum.stats.model.AppUri;
+import ru.practicum.stats.model.IpAddress;
+import ru.practicum.stats.model.ViewStats;
+import ru.practicum.stats.repository.HllRepository;
+import ru.practicum.stats.repository.RawHitRepository;
+import ru.practicum.stats.retention.RetentionPolicy;
+import ru.practicum.stats.rollup.RangePlan;
+import ru.practicum.stats.rollup.RangePlan.Segment;
+import ru.practicum.stats.rollup.RawHorizon;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@RequiredArgsConstructor
+public class HllStatsReader {
+
+    private final HllRepository hllRepository;
+    private final RawHitRepository rawHitRepository;
+    private final RetentionPolicy retentionPolicy;
+    private final ArchiveStore archiveStore;
+    private final HitSampler hitSampler;
+
+    public List<ViewStats> findStatsUnique(LocalDateTime start, LocalDateTime end, @Nullable Collection<String> uris) {
+        return CardinalitySketch.countDistinct(collectSketches(start, end, uris));
+    }
+
+    /**
+     * Per-uri sketches of the visitors of {@code [start, end]}, for callers that merge them with other ranges. While
+     * sampling leaves visitors out of the raw rows, the range is widened to the whole hour sketches it touches.
+     */
+    public Map<AppUri, HyperLogLog> collectSketches(LocalDateTime start, LocalDateTime end,
+                                                    @Nullable Collection<String> uris) {
+        Map<AppUri, HyperLogLog> sketches = new HashMap<>();
+        RawHorizon horizon = hitSampler.keepsEveryVisitor() ? retentionPolicy.horizon() : RawHorizon.PAST_RAW;
+        for (Segment segment : RangePlan.of(start, end, HllUpdater.LEVELS, horizon, null)) {
+            if (segment.isArchived()) {
+                archiveStore.forEach(segment, uris, (app, uri, ip, weight) ->
+                        sketch(sketches, app, uri).offer(Hashing.hash64(IpAddress.fromLegacy(ip).toString())));
+            } else if (segment.isRaw()) {
+                rawHitRepository.forEachDistinctIp(segment, uris, (app, uri, ip) ->
+                        sketch(sketches, app, uri).offer(Hashing.hash64(ip.toString())));
+            } else {
+                hllRepository.forEachSketch(segment, uris, (app, uri, bytes) ->
+                        sketch(sketches, app, uri).merge(HyperLogLog.fromBytes(bytes)));
+            }
+        }
+        return sketches;
+    }
+
+    private static HyperLogLog sketch(Map<AppUri, HyperLogLog> sketches, String app, String uri) {
+        return sketches.computeIfAbsent(new AppUri(app, uri), key -> new HyperLogLog());
+    }
+}
@@ -0,0 +1,59 @@
+package ru.practicum.stats.sketch;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.ingest.HitBatchListener;
+import ru.practicum.stats.model.IpAddress;
+import ru.practicum.stats.model.Stats;
+import ru.practicum.stats.repository.HllRepository;
+import ru.practicum.stats.repository.RawHitRepository;
+import ru.practicum.stats.rollup.BucketLevel;
+import ru.practicum.stats.rollup.RollupKey;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "stats.hll", name = "enabled", havingValue = "true")
+public class HllUpdater implements HitBatchListener {
+
+    static final List<BucketLevel> LEVELS = List.of(BucketLevel.HOUR, BucketLevel.DAY);
+
+    private final HllRepository hllRepository;
+    private final RawHitRepository rawHitRepository;
+
+    @PostConstruct
+    public void backfill() {
+        if (!hllRepository.isEmpty()) {
+            return;
+        }
+        Map<BucketLevel, Map<RollupKey, HyperLogLog>> sketches = new EnumMap<>(BucketLevel.class);
+        rawHitRepository.forEachHit((appId, uri, ip, time, weight) -> add(sketches, appId, uri, ip, time));
+        sketches.forEach((level, map) -> hllRepository.merge(level, map, HyperLogLog::fromBytes));
+    }
+
+    @Override
+    public void onHits(List<Stats> hits) {
+        Map<BucketLevel, Map<RollupKey, HyperLogLog>> sketches = new EnumMap<>(BucketLevel.class);
+        for (Stats hit : hits) {
+            add(sketches, hit.getApp().getId(), hit.getUri(), hit.getIp(), hit.getTimestamp());
+        }
+        sketches.forEach((level, map) -> hllRepository.merge(level, map, HyperLogLog::fromBytes));
+    }
+
+    private static void add(Map<BucketLevel, Map<RollupKey, HyperLogLog>> sketches,
+                            long appId, String uri, IpAddress ip, LocalDateTime time) {
+        long hash = Hashing.hash64(ip.toString());
+        for (BucketLevel level : LEVELS) {
+            sketches.computeIfAbsent(level, l -> new TreeMap<>())
+                    .computeIfAbsent(new RollupKey(appId, uri, level.floor(time)), k -> new HyperLogLog())
+                    .offer(hash);
+        }
+    }
+}
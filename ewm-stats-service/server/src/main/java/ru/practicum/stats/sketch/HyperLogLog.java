@@ -0,0 +1,237 @@
+package ru.practicum.stats.sketch;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * HyperLogLog cardinality sketch with 2^14 registers. The relative standard error of
+ * {@link #estimate()} is 1.04 / sqrt(2^14), about 0.81%, so roughly 95% of estimates are within 1.6%
+ * of the exact count. Sketches built from the same hash function can be merged losslessly.
+ * <p>
+ * A sketch starts sparse, holding only its non-zero registers as sorted {@code index << 8 | rank} entries, and
+ * switches to a dense 16 KB register array once it has more than {@link #SPARSE_LIMIT} of them, so the many
+ * sketches of rarely visited uris stay small.
+ */
+public class HyperLogLog implements CardinalitySketch<HyperLogLog> {
+
+    public static final int PRECISION = 14;
+
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final int SPARSE_LIMIT = REGISTERS / 16;
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private byte[] registers;
+    private int[] entries;
+    private int size;
+
+    public HyperLogLog() {
+        this.entries = new int[8];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    private HyperLogLog(int[] entries, int size) {
+        this.entries = entries;
+        this.size = size;
+    }
+
+    public void offer(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        long rest = (hash << PRECISION) | (1L << (PRECISION - 1));
+        set(index, (byte) (Long.numberOfLeadingZeros(rest) + 1));
+    }
+
+    @Override
+    public void merge(HyperLogLog other) {
+        if (other.registers != null) {
+            toDense();
+            for (int i = 0; i < REGISTERS; i++) {
+                if (registers[i] < other.registers[i]) {
+                    registers[i] = other.registers[i];
+                }
+            }
+        } else if (registers != null) {
+            for (int i = 0; i < other.size; i++) {
+                set(other.entries[i] >>> 8, (byte) other.entries[i]);
+            }
+        } else {
+            mergeSparse(other);
+        }
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        if (registers != null) {
+            for (byte register : registers) {
+                sum += 1.0 / (1L << register);
+                if (register == 0) {
+                    zeros++;
+                }
+            }
+        } else {
+            zeros = REGISTERS - size;
+            sum = zeros;
+            for (int i = 0; i < size; i++) {
+                sum += 1.0 / (1L << (byte) entries[i]);
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    @Override
+    public long cardinality() {
+        return estimate();
+    }
+
+    @Override
+    public HyperLogLog copy() {
+        HyperLogLog copy = new HyperLogLog();
+        copy.merge(this);
+        return copy;
+    }
+
+    @Override
+    public byte[] toBytes() {
+        if (registers == null) {
+            ByteBuffer buffer = ByteBuffer.allocate(6 + size * 3);
+            buffer.put(SPARSE).put((byte) PRECISION).putInt(size);
+            for (int i = 0; i < size; i++) {
+                buffer.putShort((short) (entries[i] >>> 8)).put((byte) entries[i]);
+            }
+            return buffer.array();
+        }
+        int used = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                used++;
+            }
+        }
+        if (used * 3 + 6 < REGISTERS) {
+            ByteBuffer buffer = ByteBuffer.allocate(6 + used * 3);
+            buffer.put(SPARSE).put((byte) PRECISION).putInt(used);
+            for (int i = 0; i < REGISTERS; i++) {
+                if (registers[i] != 0) {
+                    buffer.putShort((short) i).put(registers[i]);
+                }
+            }
+            return buffer.array();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(2 + REGISTERS);
+        buffer.put(DENSE).put((byte) PRECISION).put(registers);
+        return buffer.array();
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte format = buffer.get();
+        if (buffer.get() != PRECISION) {
+            throw new IllegalArgumentException("Unsupported HyperLogLog precision");
+        }
+        if (format == DENSE) {
+            byte[] registers = new byte[REGISTERS];
+            buffer.get(registers);
+            return new HyperLogLog(registers);
+        }
+        int used = buffer.getInt();
+        int[] entries = new int[Math.max(used, 8)];
+        for (int i = 0; i < used; i++) {
+            entries[i] = Short.toUnsignedInt(buffer.getShort()) << 8 | Byte.toUnsignedInt(buffer.get());
+        }
+        HyperLogLog sketch = new HyperLogLog(entries, used);
+        if (used > SPARSE_LIMIT) {
+            sketch.toDense();
+        }
+        return sketch;
+    }
+
+    private void set(int index, byte rank) {
+        if (registers != null) {
+            if (registers[index] < rank) {
+                registers[index] = rank;
+            }
+            return;
+        }
+        int position = find(index);
+        if (position >= 0) {
+            if ((byte) entries[position] < rank) {
+                entries[position] = index << 8 | rank;
+            }
+            return;
+        }
+        if (size == SPARSE_LIMIT) {
+            toDense();
+            registers[index] = rank;
+            return;
+        }
+        int insertAt = -position - 1;
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, Math.min(entries.length * 2, SPARSE_LIMIT));
+        }
+        System.arraycopy(entries, insertAt, entries, insertAt + 1, size - insertAt);
+        entries[insertAt] = index << 8 | rank;
+        size++;
+    }
+
+    private int find(int index) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int found = entries[middle] >>> 8;
+            if (found < index) {
+                low = middle + 1;
+            } else if (found > index) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void mergeSparse(HyperLogLog other) {
+        int[] merged = new int[size + other.size];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            int left = i < size ? entries[i] >>> 8 : Integer.MAX_VALUE;
+            int right = j < other.size ? other.entries[j] >>> 8 : Integer.MAX_VALUE;
+            if (left < right) {
+                merged[count++] = entries[i++];
+            } else if (right < left) {
+                merged[count++] = other.entries[j++];
+            } else {
+                merged[count++] = (byte) entries[i] >= (byte) other.entries[j] ? entries[i] : other.entries[j];
+                i++;
+                j++;
+            }
+        }
+        entries = merged.length == 0 ? new int[8] : merged;
+        size = count;
+        if (size > SPARSE_LIMIT) {
+            toDense();
+        }
+    }
+
+    private void toDense() {
+        if (registers != null) {
+            return;
+        }
+        registers = new byte[REGISTERS];
+        for (int i = 0; i < size; i++) {
+            registers[entries[i] >>> 8] = (byte) entries[i];
+        }
+        entries = null;
+        size = 0;
+    }
+}
@@ -0,0 +1,64 @@
+package ru.practicum.stats.sketch;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.model.AppUri;
+import ru.practicum.stats.repository.LatencyRepository;
+import ru.practicum.stats.repository.RawHitRepository;
+import ru.practicum.stats.retention.RetentionPolicy;
+import ru.practicum.stats.rollup.RangePlan;
+import ru.practicum.stats.rollup.RangePlan.Segment;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges the latency sketches of whole hours and days with the durations of raw hits at the edges of the range.
+ * The archive keeps no durations, so archived parts of the range contribute nothing; without
+ * {@code stats.latency.enabled} the whole range is read from raw hits.
+ */
+@Component
+public class LatencyReader {
+
+    private final LatencyRepository latencyRepository;
+    private final RawHitRepository rawHitRepository;
+    private final RetentionPolicy retentionPolicy;
+    private final boolean enabled;
+
+    public LatencyReader(LatencyRepository latencyRepository, RawHitRepository rawHitRepository,
+                         RetentionPolicy retentionPolicy, @Value("${stats.latency.enabled:false}") boolean enabled) {
+        this.latencyRepository = latencyRepository;
+        this.rawHitRepository = rawHitRepository;
+        this.retentionPolicy = retentionPolicy;
+        this.enabled = enabled;
+    }
+
+    public Map<AppUri, LatencySketch> findLatency(LocalDateTime start, LocalDateTime end,
+                                                  @Nullable Collection<String> uris) {
+        Map<AppUri, LatencySketch> sketches = new HashMap<>();
+        List<Segment> plan = enabled
+                ? RangePlan.of(start, end, LatencyUpdater.LEVELS, retentionPolicy.horizon(), null)
+                : List.of(Segment.raw(start, end, true));
+        for (Segment segment : plan) {
+            if (segment.isArchived()) {
+                continue;
+            }
+            if (segment.isRaw()) {
+                rawHitRepository.forEachDuration(segment, uris, (app, uri, durationMicros, weight) ->
+                        sketch(sketches, app, uri).offer(durationMicros, weight));
+            } else {
+                latencyRepository.forEachSketch(segment, uris, (app, uri, bytes) ->
+                        sketch(sketches, app, uri).merge(LatencySketch.fromBytes(bytes)));
+            }
+        }
+        return sketches;
+    }
+
+    private static LatencySketch sketch(Map<AppUri, LatencySketch> sketches, String app, String uri) {
+        return sketches.computeIfAbsent(new AppUri(app, uri), key -> new LatencySketch());
+    }
+}
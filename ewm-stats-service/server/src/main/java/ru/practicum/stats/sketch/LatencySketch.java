@@ -0,0 +1,125 @@
+package ru.practicum.stats.sketch;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Quantile sketch over durations in microseconds with logarithmic buckets, after DDSketch: a value {@code v} goes
+ * to bucket {@code ceil(log(v) / log(gamma))}, so every quantile is returned within {@link #RELATIVE_ACCURACY} of
+ * the true value. Buckets are counts in a dense array over the occupied index range; sketches merge losslessly.
+ */
+public class LatencySketch implements MergeableSketch<LatencySketch> {
+
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private long zeroCount;
+    private int offset;
+    private long[] counts = new long[0];
+
+    public void offer(long micros) {
+        offer(micros, 1);
+    }
+
+    public void offer(long micros, long count) {
+        if (micros <= 0) {
+            zeroCount += count;
+            return;
+        }
+        int index = (int) Math.ceil(Math.log(micros) / LOG_GAMMA);
+        ensure(index, index);
+        counts[index - offset] += count;
+    }
+
+    @Override
+    public void merge(LatencySketch other) {
+        zeroCount += other.zeroCount;
+        if (other.counts.length == 0) {
+            return;
+        }
+        ensure(other.offset, other.offset + other.counts.length - 1);
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[other.offset + i - offset] += other.counts[i];
+        }
+    }
+
+    public long count() {
+        long total = zeroCount;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the value at quantile {@code q} in {@code [0, 1]}, or {@code null} for an empty sketch.
+     */
+    public Long quantile(double q) {
+        long total = count();
+        if (total == 0) {
+            return null;
+        }
+        long rank = (long) (q * (total - 1));
+        long seen = zeroCount;
+        if (rank < seen) {
+            return 0L;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (rank < seen) {
+                return Math.round(2 * Math.pow(GAMMA, offset + i) / (GAMMA + 1));
+            }
+        }
+        throw new IllegalStateException("Rank " + rank + " is beyond " + total + " values");
+    }
+
+    private void ensure(int from, int to) {
+        if (counts.length == 0) {
+            offset = from;
+            counts = new long[to - from + 1];
+            return;
+        }
+        int newOffset = Math.min(offset, from);
+        int newEnd = Math.max(offset + counts.length - 1, to);
+        if (newOffset == offset && newEnd == offset + counts.length - 1) {
+            return;
+        }
+        long[] grown = new long[newEnd - newOffset + 1];
+        System.arraycopy(counts, 0, grown, offset - newOffset, counts.length);
+        counts = grown;
+        offset = newOffset;
+    }
+
+    @Override
+    public byte[] toBytes() {
+        int buckets = (int) Arrays.stream(counts).filter(count -> count != 0).count();
+        ByteBuffer buffer = ByteBuffer.allocate(12 + buckets * 12);
+        buffer.putLong(zeroCount).putInt(buckets);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                buffer.putInt(offset + i).putLong(counts[i]);
+            }
+        }
+        return buffer.array();
+    }
+
+    public static LatencySketch fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        LatencySketch sketch = new LatencySketch();
+        sketch.zeroCount = buffer.getLong();
+        int buckets = buffer.getInt();
+        if (buckets == 0) {
+            return sketch;
+        }
+        int first = buffer.getInt(buffer.position());
+        int last = buffer.getInt(buffer.position() + (buckets - 1) * 12);
+        sketch.ensure(first, last);
+        for (int i = 0; i < buckets; i++) {
+            int index = buffer.getInt();
+            sketch.counts[index - sketch.offset] = buffer.getLong();
+        }
+        return sketch;
+    }
+}
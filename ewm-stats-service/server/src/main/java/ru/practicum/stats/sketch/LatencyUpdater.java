@@ -0,0 +1,64 @@
+package ru.practicum.stats.sketch;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.ingest.HitBatchListener;
+import ru.practicum.stats.model.Stats;
+import ru.practicum.stats.repository.LatencyRepository;
+import ru.practicum.stats.repository.RawHitRepository;
+import ru.practicum.stats.rollup.BucketLevel;
+import ru.practicum.stats.rollup.RollupKey;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps a {@link LatencySketch} per {@code (app, uri)} and hour and day of the hits that report a duration.
+ * Hits left out by sampling still carry their duration and are counted once each.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "stats.latency", name = "enabled", havingValue = "true")
+public class LatencyUpdater implements HitBatchListener {
+
+    static final List<BucketLevel> LEVELS = List.of(BucketLevel.HOUR, BucketLevel.DAY);
+
+    private final LatencyRepository latencyRepository;
+    private final RawHitRepository rawHitRepository;
+
+    @PostConstruct
+    public void backfill() {
+        if (!latencyRepository.isEmpty()) {
+            return;
+        }
+        Map<BucketLevel, Map<RollupKey, LatencySketch>> sketches = new EnumMap<>(BucketLevel.class);
+        rawHitRepository.forEachTimedHit((appId, uri, time, durationMicros, weight) ->
+                add(sketches, appId, uri, time, durationMicros, weight));
+        sketches.forEach((level, map) -> latencyRepository.merge(level, map, LatencySketch::fromBytes));
+    }
+
+    @Override
+    public void onHits(List<Stats> hits) {
+        Map<BucketLevel, Map<RollupKey, LatencySketch>> sketches = new EnumMap<>(BucketLevel.class);
+        for (Stats hit : hits) {
+            if (hit.getDurationMicros() != null) {
+                add(sketches, hit.getApp().getId(), hit.getUri(), hit.getTimestamp(), hit.getDurationMicros(), 1);
+            }
+        }
+        sketches.forEach((level, map) -> latencyRepository.merge(level, map, LatencySketch::fromBytes));
+    }
+
+    private static void add(Map<BucketLevel, Map<RollupKey, LatencySketch>> sketches,
+                            long appId, String uri, LocalDateTime time, long durationMicros, long count) {
+        for (BucketLevel level : LEVELS) {
+            sketches.computeIfAbsent(level, l -> new TreeMap<>())
+                    .computeIfAbsent(new RollupKey(appId, uri, level.floor(time)), k -> new LatencySketch())
+                    .offer(durationMicros, count);
+        }
+    }
+}
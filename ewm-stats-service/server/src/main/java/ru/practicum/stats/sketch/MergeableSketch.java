@@ -0,0 +1,8 @@
+package ru.practicum.stats.sketch;
+
+public interface MergeableSketch<T extends MergeableSketch<T>> {
+
+    void merge(T other);
+
+    byte[] toBytes();
+}
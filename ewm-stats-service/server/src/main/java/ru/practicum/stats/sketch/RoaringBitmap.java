@@ -0,0 +1,319 @@
+package ru.practicum.stats.sketch;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compressed set of ints in the Roaring layout, ordered as unsigned: values are split by their high 16 bits
+ * into containers, each holding the low 16 bits either as a sorted array (up to 4096 values) or as a
+ * 65536-bit bitmap.
+ */
+public class RoaringBitmap implements CardinalitySketch<RoaringBitmap> {
+
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1024;
+    private static final byte ARRAY = 0;
+    private static final byte BITMAP = 1;
+
+    private char[] keys = new char[0];
+    private Container[] containers = new Container[0];
+    private int size;
+
+    public void add(int value) {
+        char high = (char) (value >>> 16);
+        int index = Arrays.binarySearch(keys, 0, size, high);
+        if (index < 0) {
+            index = -index - 1;
+            insert(index, high, new ArrayContainer());
+        }
+        containers[index] = containers[index].add((char) value);
+    }
+
+    @Override
+    public void merge(RoaringBitmap other) {
+        for (int i = 0; i < other.size; i++) {
+            int index = Arrays.binarySearch(keys, 0, size, other.keys[i]);
+            if (index < 0) {
+                insert(-index - 1, other.keys[i], other.containers[i].copy());
+            } else {
+                containers[index] = containers[index].or(other.containers[i]);
+            }
+        }
+    }
+
+    @Override
+    public long cardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    @Override
+    public RoaringBitmap copy() {
+        RoaringBitmap copy = new RoaringBitmap();
+        copy.merge(this);
+        return copy;
+    }
+
+    public boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    @Override
+    public byte[] toBytes() {
+        int length = 4;
+        for (int i = 0; i < size; i++) {
+            length += 3 + containers[i].serializedSize();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(size);
+        for (int i = 0; i < size; i++) {
+            buffer.putChar(keys[i]);
+            containers[i].writeTo(buffer);
+        }
+        return buffer.array();
+    }
+
+    public static RoaringBitmap fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        RoaringBitmap bitmap = new RoaringBitmap();
+        int count = buffer.getInt();
+        bitmap.keys = new char[count];
+        bitmap.containers = new Container[count];
+        for (int i = 0; i < count; i++) {
+            bitmap.keys[i] = buffer.getChar();
+            bitmap.containers[i] = buffer.get() == ARRAY ? ArrayContainer.readFrom(buffer) : BitmapContainer.readFrom(buffer);
+        }
+        bitmap.size = count;
+        return bitmap;
+    }
+
+    private void insert(int index, char key, Container container) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private interface Container {
+        Container add(char value);
+
+        Container or(Container other);
+
+        boolean contains(char value);
+
+        int cardinality();
+
+        Container copy();
+
+        int serializedSize();
+
+        void writeTo(ByteBuffer buffer);
+    }
+
+    private static final class ArrayContainer implements Container {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_LIMIT) {
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        public Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.copy().or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            char[] merged = new char[cardinality + array.cardinality];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < cardinality && j < array.cardinality) {
+                char a = values[i];
+                char b = array.values[j];
+                if (a == b) {
+                    merged[k++] = a;
+                    i++;
+                    j++;
+                } else if (a < b) {
+                    merged[k++] = a;
+                    i++;
+                } else {
+                    merged[k++] = b;
+                    j++;
+                }
+            }
+            while (i < cardinality) {
+                merged[k++] = values[i++];
+            }
+            while (j < array.cardinality) {
+                merged[k++] = array.values[j++];
+            }
+            if (k > ARRAY_LIMIT) {
+                return new ArrayContainer(merged, k).toBitmap();
+            }
+            return new ArrayContainer(merged, k);
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+        }
+
+        @Override
+        public int serializedSize() {
+            return 2 + cardinality * 2;
+        }
+
+        @Override
+        public void writeTo(ByteBuffer buffer) {
+            buffer.put(ARRAY).putChar((char) (cardinality - 1));
+            for (int i = 0; i < cardinality; i++) {
+                buffer.putChar(values[i]);
+            }
+        }
+
+        static ArrayContainer readFrom(ByteBuffer buffer) {
+            int cardinality = buffer.getChar() + 1;
+            char[] values = new char[cardinality];
+            for (int i = 0; i < cardinality; i++) {
+                values[i] = buffer.getChar();
+            }
+            return new ArrayContainer(values, cardinality);
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer implements Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer() {
+            this(new long[BITMAP_WORDS], 0);
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public Container add(char value) {
+            long before = words[value >>> 6];
+            long after = before | (1L << value);
+            if (before != after) {
+                words[value >>> 6] = after;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        public Container or(Container other) {
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    add(array.values[i]);
+                }
+                return this;
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                words[i] |= otherWords[i];
+                count += Long.bitCount(words[i]);
+            }
+            cardinality = count;
+            return this;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        public int serializedSize() {
+            return BITMAP_WORDS * Long.BYTES;
+        }
+
+        @Override
+        public void writeTo(ByteBuffer buffer) {
+            buffer.put(BITMAP);
+            for (long word : words) {
+                buffer.putLong(word);
+            }
+        }
+
+        static BitmapContainer readFrom(ByteBuffer buffer) {
+            long[] words = new long[BITMAP_WORDS];
+            int cardinality = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                words[i] = buffer.getLong();
+                cardinality += Long.bitCount(words[i]);
+            }
+            return new BitmapContainer(words, cardinality);
+        }
+    }
+}
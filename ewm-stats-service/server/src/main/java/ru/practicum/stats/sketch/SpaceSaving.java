@@ -0,0 +1,100 @@
+package ru.practicum.stats.sketch;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Space-Saving heavy-hitters sketch over uris with a fixed number of counters. Every uri seen more than
+ * {@code total / capacity} times is kept, and kept counts never underestimate. Merging follows the mergeable
+ * summaries construction: a uri missing from one side is charged that side's smallest count, then the
+ * largest {@code capacity} counters survive.
+ */
+public class SpaceSaving implements MergeableSketch<SpaceSaving> {
+
+    private final int capacity;
+    private final Map<String, Long> counters;
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Space-Saving capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>();
+    }
+
+    public void offer(String uri, long count) {
+        Long current = counters.get(uri);
+        if (current != null) {
+            counters.put(uri, current + count);
+        } else if (counters.size() < capacity) {
+            counters.put(uri, count);
+        } else {
+            Map.Entry<String, Long> min = counters.entrySet().stream()
+                    .min(Map.Entry.comparingByValue())
+                    .orElseThrow();
+            counters.remove(min.getKey());
+            counters.put(uri, min.getValue() + count);
+        }
+    }
+
+    @Override
+    public void merge(SpaceSaving other) {
+        long ownMin = minCount();
+        long otherMin = other.minCount();
+        Map<String, Long> merged = new HashMap<>();
+        counters.forEach((uri, count) -> merged.put(uri, count + other.counters.getOrDefault(uri, otherMin)));
+        other.counters.forEach((uri, count) -> merged.putIfAbsent(uri, count + ownMin));
+        counters.clear();
+        merged.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(capacity)
+                .forEach(entry -> counters.put(entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * Returns the kept uris, most frequent first.
+     */
+    public List<String> uris() {
+        return counters.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private long minCount() {
+        return counters.size() < capacity ? 0 : counters.values().stream().min(Comparator.naturalOrder()).orElse(0L);
+    }
+
+    @Override
+    public byte[] toBytes() {
+        Map<byte[], Long> encoded = new HashMap<>();
+        int size = 8;
+        for (Map.Entry<String, Long> entry : counters.entrySet()) {
+            byte[] uri = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            encoded.put(uri, entry.getValue());
+            size += 2 + uri.length + 8;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(capacity).putInt(encoded.size());
+        encoded.forEach((uri, count) -> buffer.putShort((short) uri.length).put(uri).putLong(count));
+        return buffer.array();
+    }
+
+    public static SpaceSaving fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        SpaceSaving sketch = new SpaceSaving(buffer.getInt());
+        int size = buffer.getInt();
+        for (int i = 0; i < size; i++) {
+            byte[] uri = new byte[Short.toUnsignedInt(buffer.getShort())];
+            buffer.get(uri);
+            sketch.counters.put(new String(uri, StandardCharsets.UTF_8), buffer.getLong());
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,55 @@
+package ru.practicum.stats.sketch;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.hot.HotWindow;
+import ru.practicum.stats.repository.TopUriRepository;
+import ru.practicum.stats.retention.RetentionPolicy;
+import ru.practicum.stats.rollup.BucketLevel;
+import ru.practicum.stats.rollup.RangePlan;
+import ru.practicum.stats.rollup.RangePlan.Segment;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Finds the candidate uris for a top-K query by merging the per-bucket heavy-hitters sketches. The hot part of the
+ * range and partial hours inside the hot window are served from the per-minute sketches of the hot window, older
+ * partial hours from the sketch of the whole enclosing hour. Widening the edges only adds candidates, their counts
+ * are computed exactly afterwards.
+ */
+@Component
+@RequiredArgsConstructor
+public class TopUriReader {
+
+    private final TopUriRepository topUriRepository;
+    private final RetentionPolicy retentionPolicy;
+    private final HotWindow hotWindow;
+    @Value("${stats.top.capacity:256}")
+    private int capacity;
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public List<String> findCandidates(LocalDateTime start, LocalDateTime end) {
+        SpaceSaving candidates = new SpaceSaving(capacity);
+        LocalDateTime hotStart = hotWindow.start();
+        for (Segment segment : RangePlan.of(start, end, TopUriUpdater.LEVELS, retentionPolicy.horizon(), hotStart)) {
+            if (segment.isHot() || (segment.getLevel() == null && hotStart != null
+                    && !segment.getFrom().isBefore(hotStart))) {
+                hotWindow.mergeTopUris(segment, candidates);
+            } else if (segment.getLevel() == null) {
+                LocalDateTime to = segment.isToInclusive()
+                        ? BucketLevel.HOUR.next(BucketLevel.HOUR.floor(segment.getTo()))
+                        : BucketLevel.HOUR.ceil(segment.getTo());
+                topUriRepository.forEachSketch(BucketLevel.HOUR, BucketLevel.HOUR.floor(segment.getFrom()), to,
+                        candidates::merge);
+            } else {
+                topUriRepository.forEachSketch(segment, candidates::merge);
+            }
+        }
+        return candidates.uris();
+    }
+}
@@ -0,0 +1,81 @@
+package ru.practicum.stats.sketch;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.ingest.HitBatchListener;
+import ru.practicum.stats.model.Stats;
+import ru.practicum.stats.repository.RawHitRepository;
+import ru.practicum.stats.repository.TopUriRepository;
+import ru.practicum.stats.rollup.BucketLevel;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+@Component
+@ConditionalOnProperty(prefix = "stats.top", name = "enabled", havingValue = "true")
+public class TopUriUpdater implements HitBatchListener {
+
+    static final List<BucketLevel> LEVELS = List.of(BucketLevel.HOUR, BucketLevel.DAY);
+
+    private final TopUriRepository topUriRepository;
+    private final RawHitRepository rawHitRepository;
+    private final int capacity;
+
+    public TopUriUpdater(TopUriRepository topUriRepository, RawHitRepository rawHitRepository,
+                         @Value("${stats.top.capacity:256}") int capacity) {
+        this.topUriRepository = topUriRepository;
+        this.rawHitRepository = rawHitRepository;
+        this.capacity = capacity;
+    }
+
+    @PostConstruct
+    public void backfill() {
+        if (!topUriRepository.isEmpty()) {
+            return;
+        }
+        Map<BucketLevel, SortedMap<LocalDateTime, Map<String, Long>>> counts = new EnumMap<>(BucketLevel.class);
+        rawHitRepository.forEachHit((appId, uri, ip, time, weight) -> add(counts, uri, time, weight));
+        merge(counts);
+    }
+
+    @Override
+    public void onHits(List<Stats> hits) {
+        Map<BucketLevel, SortedMap<LocalDateTime, Map<String, Long>>> counts = new EnumMap<>(BucketLevel.class);
+        for (Stats hit : hits) {
+            if (hit.getWeight() > 0) {
+                add(counts, hit.getUri(), hit.getTimestamp(), hit.getWeight());
+            }
+        }
+        merge(counts);
+    }
+
+    private static void add(Map<BucketLevel, SortedMap<LocalDateTime, Map<String, Long>>> counts,
+                            String uri, LocalDateTime time, long weight) {
+        for (BucketLevel level : LEVELS) {
+            counts.computeIfAbsent(level, l -> new TreeMap<>())
+                    .computeIfAbsent(level.floor(time), bucket -> new TreeMap<>())
+                    .merge(uri, weight, Long::sum);
+        }
+    }
+
+    private void merge(Map<BucketLevel, SortedMap<LocalDateTime, Map<String, Long>>> counts) {
+        counts.forEach((level, buckets) -> {
+            SortedMap<LocalDateTime, SpaceSaving> sketches = new TreeMap<>();
+            buckets.forEach((bucket, uris) -> {
+                SpaceSaving sketch = new SpaceSaving(capacity);
+                uris.entrySet().stream()
+                        .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
+                        .forEach(entry -> sketch.offer(entry.getKey(), entry.getValue()));
+                sketches.put(bucket, sketch);
+            });
+            topUriRepository.merge(level, sketches);
+        });
+    }
+}
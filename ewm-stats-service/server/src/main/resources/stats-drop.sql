@@ -0,0 +1,12 @@
+DROP TABLE IF EXISTS uri_dictionary;
+DROP TABLE IF EXISTS stats_top_uris;
+
+DROP TABLE IF EXISTS stats_ip_bitmap;
+DROP TABLE IF EXISTS ip_dictionary;
+DROP TABLE IF EXISTS stats_hll;
+DROP TABLE IF EXISTS stats_latency;
+DROP TABLE IF EXISTS stats_rollup_minute;
+DROP TABLE IF EXISTS stats_rollup_hour;
+DROP TABLE IF EXISTS stats_rollup_day;
+DROP TABLE IF EXISTS stats;
+DROP TABLE IF EXISTS applications;
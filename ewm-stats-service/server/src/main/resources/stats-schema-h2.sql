@@ -1,18 +1,14 @@
-
-DROP TABLE IF EXISTS stats;
-DROP TABLE IF EXISTS applications;
-
-CREATE TABLE IF NOT EXISTS applications (
-                                      id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-                                      app_name VARCHAR(32) NOT NULL,
-    CONSTRAINT uq_app_name UNIQUE (app_name)
-    );
-
 CREATE TABLE IF NOT EXISTS stats (
                                      id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
                                      app_id BIGINT,
                                      uri VARCHAR(32) NOT NULL,
-                                     ip VARCHAR(32) NOT NULL,
+                                     ip VARBINARY(16) NOT NULL,
                                      request_time TIMESTAMP WITHOUT TIME ZONE NOT NULL,
     CONSTRAINT fk_stats_app FOREIGN KEY (app_id) REFERENCES applications (id)
-    );
\ No newline at end of file
+    );
+
+ALTER TABLE stats ADD COLUMN IF NOT EXISTS weight INTEGER NOT NULL DEFAULT 1;
+
+ALTER TABLE stats ADD COLUMN IF NOT EXISTS duration_micros BIGINT;
+
+CREATE INDEX IF NOT EXISTS ix_stats_request_time ON stats (request_time);
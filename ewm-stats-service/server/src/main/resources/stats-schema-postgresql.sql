@@ -0,0 +1,21 @@
+CREATE TABLE IF NOT EXISTS stats (
+                                     id BIGSERIAL,
+                                     app_id BIGINT,
+                                     uri VARCHAR(32) NOT NULL,
+                                     ip BYTEA NOT NULL,
+                                     request_time TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_stats PRIMARY KEY (id, request_time),
+    CONSTRAINT fk_stats_app FOREIGN KEY (app_id) REFERENCES applications (id)
+    ) PARTITION BY RANGE (request_time);
+
+DO 'BEGIN
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = ''stats''::regclass) THEN
+        CREATE TABLE IF NOT EXISTS stats_default PARTITION OF stats DEFAULT;
+    END IF;
+END';
+
+ALTER TABLE stats ADD COLUMN IF NOT EXISTS weight INTEGER NOT NULL DEFAULT 1;
+
+ALTER TABLE stats ADD COLUMN IF NOT EXISTS duration_micros BIGINT;
+
+CREATE INDEX IF NOT EXISTS ix_stats_request_time ON stats USING BRIN (request_time);
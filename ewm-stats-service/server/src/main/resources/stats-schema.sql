@@ -0,0 +1,91 @@
+CREATE TABLE IF NOT EXISTS applications (
+                                      id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                                      app_name VARCHAR(32) NOT NULL,
+    CONSTRAINT uq_app_name UNIQUE (app_name)
+    );
+
+CREATE TABLE IF NOT EXISTS stats_rollup_minute (
+                                     uri VARCHAR(32) NOT NULL,
+                                     bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+                                     app_id BIGINT NOT NULL,
+                                     hits BIGINT NOT NULL,
+    CONSTRAINT pk_stats_rollup_minute PRIMARY KEY (uri, bucket, app_id),
+    CONSTRAINT fk_stats_rollup_minute_app FOREIGN KEY (app_id) REFERENCES applications (id)
+    );
+
+CREATE INDEX IF NOT EXISTS ix_stats_rollup_minute_bucket ON stats_rollup_minute (bucket);
+
+CREATE TABLE IF NOT EXISTS stats_rollup_hour (
+                                     uri VARCHAR(32) NOT NULL,
+                                     bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+                                     app_id BIGINT NOT NULL,
+                                     hits BIGINT NOT NULL,
+    CONSTRAINT pk_stats_rollup_hour PRIMARY KEY (uri, bucket, app_id),
+    CONSTRAINT fk_stats_rollup_hour_app FOREIGN KEY (app_id) REFERENCES applications (id)
+    );
+
+CREATE INDEX IF NOT EXISTS ix_stats_rollup_hour_bucket ON stats_rollup_hour (bucket);
+
+CREATE TABLE IF NOT EXISTS stats_rollup_day (
+                                     uri VARCHAR(32) NOT NULL,
+                                     bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+                                     app_id BIGINT NOT NULL,
+                                     hits BIGINT NOT NULL,
+    CONSTRAINT pk_stats_rollup_day PRIMARY KEY (uri, bucket, app_id),
+    CONSTRAINT fk_stats_rollup_day_app FOREIGN KEY (app_id) REFERENCES applications (id)
+    );
+
+CREATE INDEX IF NOT EXISTS ix_stats_rollup_day_bucket ON stats_rollup_day (bucket);
+
+CREATE TABLE IF NOT EXISTS stats_hll (
+                                     uri VARCHAR(32) NOT NULL,
+                                     granularity VARCHAR(8) NOT NULL,
+                                     bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+                                     app_id BIGINT NOT NULL,
+                                     sketch BYTEA NOT NULL,
+    CONSTRAINT pk_stats_hll PRIMARY KEY (uri, granularity, bucket, app_id),
+    CONSTRAINT fk_stats_hll_app FOREIGN KEY (app_id) REFERENCES applications (id)
+    );
+
+CREATE INDEX IF NOT EXISTS ix_stats_hll_bucket ON stats_hll (granularity, bucket);
+
+CREATE TABLE IF NOT EXISTS stats_latency (
+                                     uri VARCHAR(32) NOT NULL,
+                                     granularity VARCHAR(8) NOT NULL,
+                                     bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+                                     app_id BIGINT NOT NULL,
+                                     sketch BYTEA NOT NULL,
+    CONSTRAINT pk_stats_latency PRIMARY KEY (uri, granularity, bucket, app_id),
+    CONSTRAINT fk_stats_latency_app FOREIGN KEY (app_id) REFERENCES applications (id)
+    );
+
+CREATE INDEX IF NOT EXISTS ix_stats_latency_bucket ON stats_latency (granularity, bucket);
+
+CREATE TABLE IF NOT EXISTS ip_dictionary (
+                                     id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                                     ip BYTEA NOT NULL,
+    CONSTRAINT uq_ip_dictionary_ip UNIQUE (ip)
+    );
+
+CREATE TABLE IF NOT EXISTS stats_ip_bitmap (
+                                     uri VARCHAR(32) NOT NULL,
+                                     granularity VARCHAR(8) NOT NULL,
+                                     bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+                                     app_id BIGINT NOT NULL,
+                                     bitmap BYTEA NOT NULL,
+    CONSTRAINT pk_stats_ip_bitmap PRIMARY KEY (uri, granularity, bucket, app_id),
+    CONSTRAINT fk_stats_ip_bitmap_app FOREIGN KEY (app_id) REFERENCES applications (id)
+    );
+
+CREATE INDEX IF NOT EXISTS ix_stats_ip_bitmap_bucket ON stats_ip_bitmap (granularity, bucket);
+
+CREATE TABLE IF NOT EXISTS stats_top_uris (
+                                     granularity VARCHAR(8) NOT NULL,
+                                     bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+                                     sketch BYTEA NOT NULL,
+    CONSTRAINT pk_stats_top_uris PRIMARY KEY (granularity, bucket)
+    );
+
+CREATE TABLE IF NOT EXISTS uri_dictionary (
+                                     uri VARCHAR(32) PRIMARY KEY
+    );
\ No newline at end of file
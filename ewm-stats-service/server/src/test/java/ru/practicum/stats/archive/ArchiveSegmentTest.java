@@ -0,0 +1,132 @@
+package ru.practicum.stats.archive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchiveSegmentTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsBackHitsWithWeights() throws IOException {
+        Path file = write(writer -> {
+            writer.add("ewm-main-service", "/events/1", "192.168.0.1", START.plusHours(1), 1);
+            writer.add("other-service", "/events/1", "2001:db8::1", START.plusHours(2), 5);
+            writer.add("ewm-main-service", "/события/2", "192.168.0.2", START.plusHours(1), 0);
+        });
+
+        ArchiveSegment segment = new ArchiveSegment(file);
+
+        assertEquals(3, segment.getRows());
+        assertEquals(List.of(
+                        "ewm-main-service /events/1 192.168.0.1 1",
+                        "other-service /events/1 2001:db8::1 5",
+                        "ewm-main-service /события/2 192.168.0.2 0"),
+                read(segment, START, END, false, null));
+    }
+
+    @Test
+    void filtersByUriAndTime() throws IOException {
+        ArchiveSegment segment = new ArchiveSegment(write(writer -> {
+            for (String uri : List.of("/events/1", "/events/2")) {
+                for (int hour = 0; hour < 10; hour++) {
+                    writer.add("ewm-main-service", uri, "192.168.0." + hour, START.plusHours(hour), 1);
+                }
+            }
+        }));
+
+        assertEquals(3, read(segment, START.plusHours(2), START.plusHours(5), false, List.of("/events/1")).size());
+        assertEquals(4, read(segment, START.plusHours(2), START.plusHours(5), true, List.of("/events/1")).size());
+        assertEquals(20, read(segment, START, END, false, null).size());
+        assertEquals(0, read(segment, START, END, false, List.of("/events/3")).size());
+        assertTrue(segment.overlaps(START.plusHours(9), END, false));
+        assertFalse(segment.overlaps(START.plusHours(10), END, false));
+        assertFalse(segment.overlaps(START.minusHours(1), START, false));
+        assertTrue(segment.overlaps(START.minusHours(1), START, true));
+    }
+
+    @Test
+    void splitsLongUriRunsIntoBlocks() throws IOException {
+        int rows = ArchiveSegmentWriter.BLOCK_ROWS * 2 + 10;
+        ArchiveSegment segment = new ArchiveSegment(write(writer -> {
+            for (int i = 0; i < rows; i++) {
+                writer.add("ewm-main-service", "/events/1", "10.0." + (i >>> 8 & 0xFF) + "." + (i & 0xFF),
+                        START.plusSeconds(i), 1);
+            }
+        }));
+
+        assertEquals(rows, segment.getRows());
+        assertEquals(rows, read(segment, START, END, false, null).size());
+        LocalDateTime lastBlock = START.plusSeconds(ArchiveSegmentWriter.BLOCK_ROWS * 2L);
+        assertEquals(10, read(segment, lastBlock, END, false, List.of("/events/1")).size());
+    }
+
+    @Test
+    void emptySegmentOverlapsNothing() throws IOException {
+        ArchiveSegment segment = new ArchiveSegment(write(writer -> { }));
+
+        assertEquals(0, segment.getRows());
+        assertFalse(segment.overlaps(START, END, true));
+        assertEquals(0, read(segment, START, END, false, null).size());
+    }
+
+    @Test
+    void rejectsHitsOutOfOrder() throws IOException {
+        try (ArchiveSegmentWriter writer = new ArchiveSegmentWriter(dir.resolve("hits.seg"))) {
+            writer.add("ewm-main-service", "/events/1", "192.168.0.1", START.plusHours(1), 1);
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> writer.add("ewm-main-service", "/events/1", "192.168.0.1", START, 1));
+            writer.add("ewm-main-service", "/events/2", "192.168.0.1", START, 1);
+            assertThrows(IllegalArgumentException.class,
+                    () -> writer.add("ewm-main-service", "/events/1", "192.168.0.1", START.plusHours(2), 1));
+        }
+    }
+
+    @Test
+    void rejectsUnfinishedSegment() throws IOException {
+        Path file = write(writer -> writer.add("ewm-main-service", "/events/1", "192.168.0.1", START, 1));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+
+        assertThrows(IOException.class, () -> new ArchiveSegment(file));
+    }
+
+    private Path write(HitSource source) throws IOException {
+        Path file = dir.resolve("hits-" + System.nanoTime() + ".seg");
+        try (ArchiveSegmentWriter writer = new ArchiveSegmentWriter(file)) {
+            source.write(writer);
+            writer.finish();
+        }
+        return file;
+    }
+
+    private static List<String> read(ArchiveSegment segment, LocalDateTime from, LocalDateTime to,
+                                     boolean toInclusive, List<String> uris) {
+        List<String> hits = new ArrayList<>();
+        segment.forEach(from, to, toInclusive, uris, (app, uri, ip, weight) ->
+                hits.add(app + " " + uri + " " + ip + " " + weight));
+        return hits;
+    }
+
+    private interface HitSource {
+        void write(ArchiveSegmentWriter writer);
+    }
+}
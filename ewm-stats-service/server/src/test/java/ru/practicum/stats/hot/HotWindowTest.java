@@ -0,0 +1,104 @@
+package ru.practicum.stats.hot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.stats.model.App;
+import ru.practicum.stats.model.AppUri;
+import ru.practicum.stats.model.IpAddress;
+import ru.practicum.stats.model.Stats;
+import ru.practicum.stats.repository.RawHitRepository;
+import ru.practicum.stats.rollup.BucketLevel;
+import ru.practicum.stats.rollup.RangePlan.Segment;
+import ru.practicum.stats.rollup.RangePlan.Source;
+import ru.practicum.stats.service.IpResolver;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HotWindowTest {
+
+    private static final LocalDateTime MINUTE = BucketLevel.MINUTE.floor(LocalDateTime.now().minusMinutes(10));
+
+    private final IpResolver ipResolver = mock(IpResolver.class);
+    private HotWindow hotWindow;
+
+    @BeforeEach
+    void setUp() {
+        when(ipResolver.resolve(anyCollection())).thenAnswer(invocation -> {
+            Collection<IpAddress> ips = invocation.getArgument(0);
+            return ips.stream().collect(Collectors.toMap(Function.identity(), ip -> ip.toString().hashCode()));
+        });
+        hotWindow = new HotWindow(mock(RawHitRepository.class), ipResolver, true, Duration.ofHours(1), 4, false, 16);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void countsHitsRightAwayOutsideTransaction() {
+        hotWindow.onHits(List.of(hit("/events/1", "10.0.0.1", 1), hit("/events/1", "10.0.0.2", 3),
+                hit("/events/2", "10.0.0.1", 0)));
+
+        assertEquals(Map.of(key("/events/1"), 4L), hotWindow.countHits(segment(), null));
+    }
+
+    @Test
+    void countsHitsOnceTheirTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        hotWindow.onHits(List.of(hit("/events/1", "10.0.0.1", 1)));
+
+        assertEquals(Map.of(), hotWindow.countHits(segment(), null));
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(Map.of(key("/events/1"), 1L), hotWindow.countHits(segment(), null));
+    }
+
+    @Test
+    void ignoresHitsOfRolledBackTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        hotWindow.onHits(List.of(hit("/events/1", "10.0.0.1", 1)));
+
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(Map.of(), hotWindow.countHits(segment(), null));
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        for (TransactionSynchronization synchronization : synchronizations) {
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                synchronization.afterCommit();
+            }
+            synchronization.afterCompletion(status);
+        }
+    }
+
+    private static Segment segment() {
+        return new Segment(BucketLevel.MINUTE, MINUTE, MINUTE.plusMinutes(1), false, Source.HOT_WINDOW);
+    }
+
+    private static AppUri key(String uri) {
+        return new AppUri("ewm-main-service", uri);
+    }
+
+    private static Stats hit(String uri, String ip, int weight) {
+        return Stats.builder().app(new App("ewm-main-service")).uri(uri).ip(IpAddress.parse(ip))
+                .timestamp(MINUTE.plusSeconds(30)).weight(weight).build();
+    }
+}
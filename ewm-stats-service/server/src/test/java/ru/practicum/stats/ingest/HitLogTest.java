@@ -0,0 +1,148 @@
+package ru.practicum.stats.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.stats.exception.IngestQueueFullException;
+import ru.practicum.stats.model.App;
+import ru.practicum.stats.model.IpAddress;
+import ru.practicum.stats.model.Stats;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HitLogTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 1, 2, 3, 4, 5, 600_000_000);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsBackAppendedHits() throws IOException {
+        HitLog log = open();
+        log.append(List.of(hit("/events/1", "192.168.0.1", null), hit("/события/2", "2001:db8::1", 1_500L)));
+
+        HitLog.Batch batch = log.read(log.checkpoint(), 10);
+
+        assertEquals(2, batch.getHits().size());
+        Stats first = batch.getHits().get(0);
+        assertEquals("ewm-main-service", first.getApp().getName());
+        assertEquals("/events/1", first.getUri());
+        assertEquals(IpAddress.parse("192.168.0.1").toString(), first.getIp().toString());
+        assertEquals(TIME, first.getTimestamp());
+        assertNull(first.getDurationMicros());
+        Stats second = batch.getHits().get(1);
+        assertEquals("/события/2", second.getUri());
+        assertEquals(IpAddress.parse("2001:db8::1").toString(), second.getIp().toString());
+        assertEquals(1_500L, second.getDurationMicros());
+        assertEquals(0, log.read(batch.getNext(), 10).getHits().size());
+    }
+
+    @Test
+    void replaysHitsAfterCheckpointOnReopen() throws IOException {
+        HitLog log = open();
+        log.append(hits(0, 3));
+        HitLog.Batch applied = log.read(log.checkpoint(), 2);
+        log.checkpoint(applied.getNext());
+        log.append(hits(3, 5));
+        log.close();
+
+        HitLog reopened = open();
+
+        assertEquals(List.of("/events/2", "/events/3", "/events/4"), uris(reopened.read(reopened.checkpoint(), 10)));
+    }
+
+    @Test
+    void replaysEverythingWithoutCheckpoint() throws IOException {
+        open().append(hits(0, 3));
+
+        HitLog reopened = open();
+
+        assertEquals(3, reopened.read(reopened.checkpoint(), 10).getHits().size());
+    }
+
+    @Test
+    void truncatesTornTailOnReopen() throws IOException {
+        HitLog log = open();
+        log.append(hits(0, 2));
+        int intact = (int) log.pendingBytes();
+        log.append(hits(2, 3));
+        log.close();
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            file.seek(intact + 12);
+            file.write(file.read() ^ 0xFF);
+        }
+
+        HitLog reopened = open();
+
+        assertEquals(intact, reopened.pendingBytes());
+        reopened.append(hits(5, 6));
+        assertEquals(List.of("/events/0", "/events/1", "/events/5"), uris(reopened.read(reopened.checkpoint(), 10)));
+    }
+
+    @Test
+    void rollsOverToNewSegmentsAndDeletesCheckpointedOnes() throws IOException {
+        HitLog log = open();
+        for (int i = 0; i < 200; i += 20) {
+            log.append(hits(i, i + 20));
+        }
+        assertTrue(segments().size() > 1);
+
+        HitLog.Batch all = log.read(log.checkpoint(), 1_000);
+        assertEquals(200, all.getHits().size());
+        assertEquals(hits(0, 200).stream().map(Stats::getUri).collect(Collectors.toList()), uris(all));
+
+        log.checkpoint(all.getNext());
+        assertEquals(1, segments().size());
+        assertEquals(0, log.pendingBytes());
+        assertEquals(0, open().read(log.checkpoint(), 10).getHits().size());
+    }
+
+    @Test
+    void rejectsAppendsBeyondMaxSegments() throws IOException {
+        HitLog log = new HitLog(dir, SEGMENT_SIZE, 2, false);
+        log.append(hits(0, 60));
+
+        assertThrows(IngestQueueFullException.class, () -> log.append(hits(60, 200)));
+        assertEquals(60, log.read(log.checkpoint(), 1_000).getHits().size());
+    }
+
+    private HitLog open() throws IOException {
+        return new HitLog(dir, SEGMENT_SIZE, 100, false);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("wal-")).sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static List<Stats> hits(int from, int to) {
+        return IntStream.range(from, to)
+                .mapToObj(i -> hit("/events/" + i, "10.0.0." + (i % 256), null))
+                .collect(Collectors.toList());
+    }
+
+    private static Stats hit(String uri, String ip, Long durationMicros) {
+        return Stats.builder().app(new App("ewm-main-service")).uri(uri).ip(IpAddress.parse(ip)).timestamp(TIME)
+                .durationMicros(durationMicros).build();
+    }
+
+    private static List<String> uris(HitLog.Batch batch) {
+        return batch.getHits().stream().map(Stats::getUri).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,86 @@
+package ru.practicum.stats.ingest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.model.App;
+import ru.practicum.stats.model.IpAddress;
+import ru.practicum.stats.model.Stats;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HitSamplerTest {
+
+    private static final int HITS = 500;
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 1, 2, 3, 4, 5);
+
+    @Test
+    void storesOnlyWeightedHitsWhenSketchesCountVisitors() throws InterruptedException {
+        HitSampler sampler = sampler(true);
+        List<Stats> hits = hits();
+
+        List<Stats> stored = sampleUnderLoad(sampler, hits);
+
+        assertFalse(sampler.keepsEveryVisitor());
+        assertTrue(stored.size() < HITS / 10, "stored " + stored.size());
+        assertTrue(stored.stream().allMatch(hit -> hit.getWeight() > 0));
+        assertEquals(HITS, hits.size());
+    }
+
+    @Test
+    void storesFirstHitOfEachVisitorWithoutSketches() throws InterruptedException {
+        HitSampler sampler = sampler(false);
+
+        List<Stats> stored = sampleUnderLoad(sampler, hits());
+
+        assertTrue(sampler.keepsEveryVisitor());
+        assertEquals(HITS, stored.size());
+        assertTrue(stored.stream().anyMatch(hit -> hit.getWeight() == 0));
+        assertEquals(0, sampler.sample(hits()).stream().filter(hit -> hit.getWeight() == 0).count());
+    }
+
+    @Test
+    void keepsEveryVisitorWhenSamplingIsOff() {
+        HitSampler sampler = new HitSampler(new IngestProperties(), new SimpleMeterRegistry(), true, true);
+
+        assertTrue(sampler.keepsEveryVisitor());
+        assertEquals(HITS, sampler.sample(hits()).size());
+    }
+
+    /**
+     * Sends a full second of hits first, so the hits of the next second are sampled at the maximum factor.
+     */
+    private static List<Stats> sampleUnderLoad(HitSampler sampler, List<Stats> hits) throws InterruptedException {
+        awaitNextSecond();
+        sampler.sample(hits(TIME.minusSeconds(1)));
+        awaitNextSecond();
+        return sampler.sample(hits);
+    }
+
+    private static HitSampler sampler(boolean sketches) {
+        IngestProperties properties = new IngestProperties();
+        properties.setSamplingThreshold(1);
+        return new HitSampler(properties, new SimpleMeterRegistry(), sketches, false);
+    }
+
+    private static void awaitNextSecond() throws InterruptedException {
+        Thread.sleep(1_000 - System.currentTimeMillis() % 1_000 + 10);
+    }
+
+    private static List<Stats> hits() {
+        return hits(TIME);
+    }
+
+    private static List<Stats> hits(LocalDateTime time) {
+        return IntStream.range(0, HITS)
+                .mapToObj(i -> Stats.builder().app(new App("ewm-main-service")).uri("/events/1")
+                        .ip(IpAddress.parse("10.0." + (i >>> 8) + "." + (i & 0xFF))).timestamp(time).build())
+                .collect(Collectors.toList());
+    }
+}
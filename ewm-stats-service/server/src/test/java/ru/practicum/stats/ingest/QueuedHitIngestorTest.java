@@ -0,0 +1,107 @@
+package ru.practicum.stats.ingest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.stats.exception.IngestQueueFullException;
+import ru.practicum.stats.model.App;
+import ru.practicum.stats.model.IpAddress;
+import ru.practicum.stats.model.Stats;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class QueuedHitIngestorTest {
+
+    private final IngestProperties properties = new IngestProperties();
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final List<String> written = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        properties.setQueueCapacity(3);
+        properties.setFlushInterval(Duration.ofMillis(10));
+    }
+
+    @Test
+    void rejectsRequestsThatDoNotFitWhole() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        HitWriter writer = mock(HitWriter.class);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            record(invocation.getArgument(0));
+            return null;
+        }).when(writer).write(anyList());
+        QueuedHitIngestor ingestor = start(writer);
+
+        ingestor.ingestAll(List.of(hit("/events/1"), hit("/events/2")));
+        assertThrows(IngestQueueFullException.class,
+                () -> ingestor.ingestAll(List.of(hit("/events/3"), hit("/events/4"))));
+        ingestor.ingest(hit("/events/5"));
+        assertThrows(IngestQueueFullException.class, () -> ingestor.ingest(hit("/events/6")));
+        release.countDown();
+        waitFor(3);
+        ingestor.ingest(hit("/events/7"));
+        waitFor(4);
+        ingestor.stop();
+
+        assertEquals(List.of("/events/1", "/events/2", "/events/5", "/events/7"), written);
+    }
+
+    @Test
+    void retriesFailedBatchUntilWritten() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        HitWriter writer = mock(HitWriter.class);
+        doAnswer(invocation -> {
+            if (attempts.incrementAndGet() <= 2) {
+                throw new IllegalStateException("Database is down");
+            }
+            record(invocation.getArgument(0));
+            return null;
+        }).when(writer).write(anyList());
+        QueuedHitIngestor ingestor = start(writer);
+
+        ingestor.ingestAll(List.of(hit("/events/1"), hit("/events/2")));
+        waitFor(2);
+        ingestor.stop();
+
+        assertEquals(3, attempts.get());
+        assertEquals(List.of("/events/1", "/events/2"), written);
+    }
+
+    private QueuedHitIngestor start(HitWriter writer) {
+        QueuedHitIngestor ingestor = new QueuedHitIngestor(properties, writer, transactionManager,
+                new SimpleMeterRegistry());
+        ingestor.start();
+        return ingestor;
+    }
+
+    private void record(List<Stats> hits) {
+        written.addAll(hits.stream().map(Stats::getUri).collect(Collectors.toList()));
+    }
+
+    private void waitFor(int size) throws InterruptedException {
+        for (int i = 0; i < 500 && written.size() < size; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(size, written.size());
+    }
+
+    private static Stats hit(String uri) {
+        return Stats.builder().app(new App("ewm-main-service")).uri(uri).ip(IpAddress.parse("192.168.0.1"))
+                .timestamp(LocalDateTime.of(2024, 1, 2, 3, 4, 5)).build();
+    }
+}
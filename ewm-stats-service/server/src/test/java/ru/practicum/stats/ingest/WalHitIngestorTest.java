@@ -0,0 +1,146 @@
+package ru.practicum.stats.ingest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.stats.model.App;
+import ru.practicum.stats.model.IpAddress;
+import ru.practicum.stats.model.Stats;
+import ru.practicum.stats.service.AppResolver;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WalHitIngestorTest {
+
+    @TempDir
+    Path dir;
+
+    private final IngestProperties properties = new IngestProperties();
+    private final AppResolver appResolver = mock(AppResolver.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        properties.setWalDir(dir);
+        properties.setWalSegmentSize(DataSize.ofKilobytes(64));
+        properties.setFlushInterval(Duration.ofMillis(10));
+        when(appResolver.resolve(anyString())).thenAnswer(invocation -> new App(invocation.getArgument(0)));
+    }
+
+    @Test
+    void replaysHitsNotAppliedBeforeRestart() throws Exception {
+        HitWriter failing = mock(HitWriter.class);
+        doThrow(new IllegalStateException("Database is down")).when(failing).write(anyList());
+        WalHitIngestor before = start(failing);
+        before.ingestAll(List.of(hit("/events/1"), hit("/events/2")));
+        verify(failing, timeout(5_000).atLeastOnce()).write(anyList());
+        before.stop();
+
+        List<String> written = new CopyOnWriteArrayList<>();
+        HitWriter writer = recording(written);
+        WalHitIngestor after = start(writer);
+
+        verify(writer, timeout(5_000).atLeastOnce()).write(anyList());
+        after.stop();
+        assertEquals(List.of("/events/1", "/events/2"), written);
+    }
+
+    @Test
+    void doesNotReplayAppliedHits() throws Exception {
+        List<String> written = new CopyOnWriteArrayList<>();
+        WalHitIngestor before = start(recording(written));
+        before.ingestAll(List.of(hit("/events/1")));
+        waitFor(written, 1);
+        before.ingest(hit("/events/2"));
+        waitFor(written, 2);
+        before.stop();
+
+        List<String> replayed = new CopyOnWriteArrayList<>();
+        WalHitIngestor after = start(recording(replayed));
+        after.ingest(hit("/events/3"));
+        waitFor(replayed, 1);
+        after.stop();
+
+        assertEquals(List.of("/events/1", "/events/2"), written);
+        assertEquals(List.of("/events/3"), replayed);
+    }
+
+    @Test
+    void countsRetriesSeparatelyFromDroppedHits() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        List<String> written = new CopyOnWriteArrayList<>();
+        HitWriter writer = mock(HitWriter.class);
+        doAnswer(invocation -> {
+            List<Stats> hits = invocation.getArgument(0);
+            if (attempts.incrementAndGet() <= 2) {
+                throw new IllegalStateException("Database is down");
+            }
+            if (hits.stream().anyMatch(hit -> hit.getUri().equals("/events/2"))) {
+                throw new DataIntegrityViolationException("uri too long");
+            }
+            written.addAll(hits.stream().map(Stats::getUri).collect(Collectors.toList()));
+            return null;
+        }).when(writer).write(anyList());
+        WalHitIngestor ingestor = start(writer);
+
+        ingestor.ingestAll(List.of(hit("/events/1"), hit("/events/2"), hit("/events/3")));
+        waitFor(written, 2);
+        ingestor.stop();
+
+        assertEquals(List.of("/events/1", "/events/3"), written);
+        assertEquals(6, meterRegistry.counter("stats.ingest.retries").count());
+        assertEquals(1, meterRegistry.counter("stats.ingest.failed").count());
+        assertEquals(2, meterRegistry.counter("stats.ingest.flushed").count());
+    }
+
+    private WalHitIngestor start(HitWriter hitWriter) throws IOException {
+        WalHitIngestor ingestor = new WalHitIngestor(properties, hitWriter, appResolver, transactionManager,
+                meterRegistry);
+        ingestor.start();
+        return ingestor;
+    }
+
+    private static HitWriter recording(List<String> written) {
+        HitWriter writer = mock(HitWriter.class);
+        doAnswer(invocation -> {
+            List<Stats> hits = invocation.getArgument(0);
+            written.addAll(hits.stream().map(Stats::getUri).collect(Collectors.toList()));
+            return null;
+        }).when(writer).write(anyList());
+        return writer;
+    }
+
+    private static void waitFor(List<String> written, int size) throws InterruptedException {
+        for (int i = 0; i < 500 && written.size() < size; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(size, written.size());
+    }
+
+    private static Stats hit(String uri) {
+        return Stats.builder().app(new App("ewm-main-service")).uri(uri).ip(IpAddress.parse("192.168.0.1"))
+                .timestamp(LocalDateTime.of(2024, 1, 2, 3, 4, 5)).build();
+    }
+}
@@ -0,0 +1,85 @@
+package ru.practicum.stats.migration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.practicum.stats.model.IpAddress;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IpColumnMigrationTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:legacy-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1",
+                "test", "test");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE applications (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "app_name VARCHAR(32) NOT NULL, CONSTRAINT uq_app_name UNIQUE (app_name))");
+        jdbcTemplate.execute("CREATE TABLE stats (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "app_id BIGINT, uri VARCHAR(32) NOT NULL, ip VARCHAR(32) NOT NULL, " +
+                "request_time TIMESTAMP WITHOUT TIME ZONE NOT NULL, " +
+                "CONSTRAINT fk_stats_app FOREIGN KEY (app_id) REFERENCES applications (id))");
+        jdbcTemplate.execute("CREATE TABLE ip_dictionary (id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "ip VARCHAR(45) NOT NULL, CONSTRAINT uq_ip_dictionary_ip UNIQUE (ip))");
+        jdbcTemplate.update("INSERT INTO applications (app_name) VALUES ('ewm-main-service')");
+        for (String ip : List.of("192.168.0.1", "2001:db8::1", "2001:DB8:0:0:0:0:0:1", "unknown")) {
+            jdbcTemplate.update("INSERT INTO stats (app_id, uri, ip, request_time) " +
+                    "VALUES (1, '/events/1', ?, TIMESTAMP '2024-01-02 03:04:05')", ip);
+            jdbcTemplate.update("INSERT INTO ip_dictionary (ip) VALUES (?)", ip);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void convertsLegacyTablesLeftByCreateScripts() {
+        new ResourceDatabasePopulator(new ClassPathResource("stats-schema.sql"),
+                new ClassPathResource("stats-schema-h2.sql")).execute(dataSource);
+
+        migration().migrate();
+
+        assertEquals(List.of("192.168.0.1", "2001:db8::1", "2001:db8::1", IpAddress.fromLegacy("unknown").toString()),
+                ips("SELECT ip FROM stats ORDER BY id"));
+        assertEquals(List.of("192.168.0.1", "2001:db8::1", IpAddress.fromLegacy("unknown").toString()),
+                ips("SELECT ip FROM ip_dictionary ORDER BY id"));
+        assertEquals(List.of(1, 2, 4), jdbcTemplate.queryForList("SELECT id FROM ip_dictionary ORDER BY id",
+                Integer.class));
+        assertEquals(List.of(1L), jdbcTemplate.queryForList("SELECT weight FROM stats GROUP BY weight", Long.class));
+    }
+
+    @Test
+    void doesNothingOnPackedColumns() {
+        migration().migrate();
+        List<String> stats = ips("SELECT ip FROM stats ORDER BY id");
+
+        migration().migrate();
+
+        assertEquals(stats, ips("SELECT ip FROM stats ORDER BY id"));
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ip_dictionary", Integer.class));
+    }
+
+    private IpColumnMigration migration() {
+        return new IpColumnMigration(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+    }
+
+    private List<String> ips(String sql) {
+        return jdbcTemplate.queryForList(sql, byte[].class).stream()
+                .map(bytes -> IpAddress.fromBytes(bytes).toString())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,106 @@
+package ru.practicum.stats.rollup;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.rollup.RangePlan.Segment;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RangePlanTest {
+
+    private static final List<BucketLevel> LEVELS = List.of(BucketLevel.HOUR, BucketLevel.DAY);
+
+    @Test
+    void rangeWithinOneBucketIsRaw() {
+        assertEquals(List.of(Segment.raw(time(1, 10, 15), time(1, 10, 40), true)),
+                RangePlan.of(time(1, 10, 15), time(1, 10, 40), LEVELS, null, null));
+    }
+
+    @Test
+    void usesCoarsestLevelThatFitsAndRawEdges() {
+        assertEquals(List.of(
+                        Segment.raw(time(1, 10, 15), time(1, 11, 0), false),
+                        Segment.buckets(BucketLevel.HOUR, time(1, 11, 0), time(2, 0, 0)),
+                        Segment.buckets(BucketLevel.DAY, time(2, 0, 0), time(3, 0, 0)),
+                        Segment.buckets(BucketLevel.HOUR, time(3, 0, 0), time(3, 5, 0)),
+                        Segment.raw(time(3, 5, 0), time(3, 5, 30), true)),
+                RangePlan.of(time(1, 10, 15), time(3, 5, 30), LEVELS, null, null));
+    }
+
+    @Test
+    void alignedRangeKeepsInclusiveEndInstant() {
+        assertEquals(List.of(
+                        Segment.buckets(BucketLevel.HOUR, time(1, 10, 0), time(1, 12, 0)),
+                        Segment.raw(time(1, 12, 0), time(1, 12, 0), true)),
+                RangePlan.of(time(1, 10, 0), time(1, 12, 0), LEVELS, null, null));
+    }
+
+    @Test
+    void expiredEdgesWidenToWholeBuckets() {
+        RawHorizon horizon = new RawHorizon(time(5, 0, 0), false);
+
+        assertEquals(List.of(Segment.buckets(BucketLevel.HOUR, time(1, 10, 0), time(1, 11, 0))),
+                RangePlan.of(time(1, 10, 15), time(1, 10, 40), LEVELS, horizon, null));
+        assertEquals(List.of(Segment.buckets(BucketLevel.HOUR, time(1, 10, 0), time(1, 12, 0))),
+                RangePlan.of(time(1, 10, 15), time(1, 11, 0), LEVELS, horizon, null));
+    }
+
+    @Test
+    void expiredEdgesAreReadFromArchiveUpToHorizon() {
+        RawHorizon horizon = new RawHorizon(time(2, 0, 0), true);
+
+        assertEquals(List.of(
+                        Segment.archived(time(1, 23, 30), time(2, 0, 0), false),
+                        Segment.raw(time(2, 0, 0), time(2, 0, 20), true)),
+                RangePlan.of(time(1, 23, 30), time(2, 0, 20), LEVELS, horizon, null));
+        assertEquals(List.of(Segment.archived(time(1, 23, 30), time(1, 23, 50), true)),
+                RangePlan.of(time(1, 23, 30), time(1, 23, 50), LEVELS, horizon, null));
+    }
+
+    @Test
+    void rangeEndingAtHorizonStaysInArchive() {
+        RawHorizon horizon = new RawHorizon(time(2, 0, 0), true);
+
+        assertEquals(List.of(
+                        Segment.archived(time(1, 23, 30), time(2, 0, 0), false),
+                        Segment.raw(time(2, 0, 0), time(2, 0, 0), true)),
+                RangePlan.of(time(1, 23, 30), time(2, 0, 0), LEVELS, horizon, null));
+    }
+
+    @Test
+    void wholeMinutesInsideHotWindowAreHot() {
+        LocalDateTime hotStart = time(1, 10, 0);
+
+        assertEquals(List.of(
+                        Segment.raw(time(1, 9, 15), time(1, 10, 0), false),
+                        Segment.hot(time(1, 10, 0), time(1, 10, 30)),
+                        Segment.raw(time(1, 10, 30), time(1, 10, 30).plusSeconds(30), true)),
+                RangePlan.of(time(1, 9, 15), time(1, 10, 30).plusSeconds(30), LEVELS, null, hotStart));
+    }
+
+    @Test
+    void hotWindowStartsAtFirstWholeMinute() {
+        LocalDateTime hotStart = time(1, 10, 0);
+
+        assertEquals(List.of(
+                        Segment.raw(time(1, 10, 20).plusSeconds(10), time(1, 10, 21), false),
+                        Segment.hot(time(1, 10, 21), time(1, 10, 25)),
+                        Segment.raw(time(1, 10, 25), time(1, 10, 25), true)),
+                RangePlan.of(time(1, 10, 20).plusSeconds(10), time(1, 10, 25), LEVELS, null, hotStart));
+    }
+
+    @Test
+    void rangeWithinOneMinuteIsNotHot() {
+        LocalDateTime start = time(1, 10, 20).plusSeconds(10);
+        LocalDateTime end = time(1, 10, 20).plusSeconds(50);
+
+        assertEquals(List.of(Segment.raw(start, end, true)),
+                RangePlan.of(start, end, LEVELS, null, time(1, 10, 0)));
+    }
+
+    private static LocalDateTime time(int day, int hour, int minute) {
+        return LocalDateTime.of(2024, 1, day, hour, minute);
+    }
+}
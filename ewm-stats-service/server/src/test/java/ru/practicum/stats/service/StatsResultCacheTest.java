@@ -0,0 +1,134 @@
+package ru.practicum.stats.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.model.App;
+import ru.practicum.stats.model.AppUri;
+import ru.practicum.stats.model.IpAddress;
+import ru.practicum.stats.model.Stats;
+import ru.practicum.stats.model.ViewStats;
+import ru.practicum.stats.rollup.BucketLevel;
+import ru.practicum.stats.sketch.RoaringBitmap;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatsResultCacheTest {
+
+    private static final String APP = "ewm-main-service";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StatsResultCache cache = new StatsResultCache(true, 100, meterRegistry);
+    private final List<Visit> visits = new ArrayList<>();
+    private final List<LocalDateTime> loadedFrom = new ArrayList<>();
+
+    @Test
+    void uniqueRangeIntoOpenHourReloadsOnlyTheOpenPart() {
+        LocalDateTime open = BucketLevel.HOUR.floor(LocalDateTime.now());
+        LocalDateTime start = open.minusDays(2);
+        visit("/events/1", open.minusHours(5), 1);
+        visit("/events/1", open.minusHours(3), 2);
+        visit("/events/1", open.plusSeconds(1), 2);
+        visit("/events/2", open.plusSeconds(1), 3);
+
+        assertEquals(List.of("/events/1=2", "/events/2=1"),
+                unique(start));
+        visit("/events/1", open.plusSeconds(2), 4);
+        assertEquals(List.of("/events/1=3", "/events/2=1"),
+                unique(start));
+
+        assertEquals(List.of(start, open, open), loadedFrom);
+    }
+
+    @Test
+    void lateHitInvalidatesCachedSketches() {
+        LocalDateTime open = BucketLevel.HOUR.floor(LocalDateTime.now());
+        LocalDateTime start = open.minusDays(2);
+        visit("/events/1", open.minusHours(5), 1);
+        unique(start);
+
+        visit("/events/1", open.minusHours(4), 5);
+        cache.onHits(List.of(hit(open.minusHours(4))));
+
+        assertEquals(List.of("/events/1=2"), unique(start));
+        assertEquals(List.of(start, open, start, open), loadedFrom);
+    }
+
+    @Test
+    void prunesLateMarksBeforeEveryCachedRange() {
+        LocalDateTime open = BucketLevel.HOUR.floor(LocalDateTime.now());
+        unique(open.minusHours(10));
+        cache.onHits(List.of(hit(open.minusHours(20)), hit(open.minusHours(5))));
+
+        cache.prune();
+
+        assertEquals(1, meterRegistry.get("stats.cache.late-buckets").gauge().value());
+    }
+
+    @Test
+    void entryLoadedBeforeItsMarksWerePrunedIsStale() {
+        LocalDateTime open = BucketLevel.HOUR.floor(LocalDateTime.now());
+        LocalDateTime start = open.minusHours(20);
+        visit("/events/1", open.minusHours(5), 1);
+        cache.getUnique(start, open.plusMinutes(1), null, false, (from, to) -> {
+            loadedFrom.add(from);
+            Map<AppUri, RoaringBitmap> ips = load(from, to);
+            if (loadedFrom.size() == 1) {
+                visit("/events/1", open.minusHours(15), 6);
+                cache.onHits(List.of(hit(open.minusHours(15))));
+                cache.prune();
+            }
+            return ips;
+        });
+
+        assertEquals(List.of("/events/1=2"), unique(start));
+    }
+
+    private List<String> unique(LocalDateTime start) {
+        return counts(cache.getUnique(start, LocalDateTime.now().plusMinutes(1), null, false, (from, to) -> {
+            loadedFrom.add(from);
+            return load(from, to);
+        }));
+    }
+
+    private static List<String> counts(List<ViewStats> stats) {
+        return stats.stream().map(s -> s.getUri() + "=" + s.getHits()).collect(Collectors.toList());
+    }
+
+    private Map<AppUri, RoaringBitmap> load(LocalDateTime from, LocalDateTime to) {
+        Map<AppUri, RoaringBitmap> ips = new HashMap<>();
+        for (Visit visit : visits) {
+            if (!visit.time.isBefore(from) && !visit.time.isAfter(to)) {
+                ips.computeIfAbsent(new AppUri(APP, visit.uri), key -> new RoaringBitmap()).add(visit.ipId);
+            }
+        }
+        return ips;
+    }
+
+    private void visit(String uri, LocalDateTime time, int ipId) {
+        visits.add(new Visit(uri, time, ipId));
+    }
+
+    private static Stats hit(LocalDateTime time) {
+        return Stats.builder().app(new App(APP)).uri("/events/1").ip(IpAddress.parse("192.168.0.1"))
+                .timestamp(time).build();
+    }
+
+    private static final class Visit {
+        private final String uri;
+        private final LocalDateTime time;
+        private final int ipId;
+
+        private Visit(String uri, LocalDateTime time, int ipId) {
+            this.uri = uri;
+            this.time = time;
+            this.ipId = ipId;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package ru.practicum.stats.sketch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    @Test
+    void emptySketchEstimatesZero() {
+        assertEquals(0, new HyperLogLog().estimate());
+        assertEquals(0, HyperLogLog.fromBytes(new HyperLogLog().toBytes()).estimate());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000})
+    void estimatesWithinFourStandardErrors(int distinct) {
+        HyperLogLog sketch = sketch(0, distinct);
+
+        assertWithin(distinct, sketch.estimate(), 4 * 1.04 / Math.sqrt(1 << HyperLogLog.PRECISION));
+    }
+
+    @Test
+    void repeatedValuesDoNotChangeTheEstimate() {
+        HyperLogLog sketch = sketch(0, 500);
+        long estimate = sketch.estimate();
+
+        for (int i = 0; i < 10; i++) {
+            offer(sketch, 0, 500);
+        }
+
+        assertEquals(estimate, sketch.estimate());
+    }
+
+    @ParameterizedTest
+    @CsvSource({"100, 200", "100, 50000", "50000, 100", "50000, 80000"})
+    void mergeEqualsSketchOfUnion(int leftSize, int rightSize) {
+        HyperLogLog left = sketch(0, leftSize);
+        HyperLogLog right = sketch(leftSize / 2, leftSize / 2 + rightSize);
+        HyperLogLog union = sketch(0, Math.max(leftSize, leftSize / 2 + rightSize));
+
+        left.merge(right);
+
+        assertEquals(union.estimate(), left.estimate());
+        assertArrayEquals(union.toBytes(), left.toBytes());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 1_000, 1_100, 100_000})
+    void survivesSerialization(int distinct) {
+        HyperLogLog sketch = sketch(0, distinct);
+
+        HyperLogLog copy = HyperLogLog.fromBytes(sketch.toBytes());
+
+        assertEquals(sketch.estimate(), copy.estimate());
+        assertArrayEquals(sketch.toBytes(), copy.toBytes());
+        offer(copy, distinct, distinct + 1_000);
+        offer(sketch, distinct, distinct + 1_000);
+        assertEquals(sketch.estimate(), copy.estimate());
+    }
+
+    @Test
+    void smallSketchesSerializeCompactly() {
+        assertTrue(sketch(0, 10).toBytes().length < 64);
+        assertEquals(2 + (1 << HyperLogLog.PRECISION), sketch(0, 100_000).toBytes().length);
+    }
+
+    @Test
+    void rejectsOtherPrecision() {
+        byte[] bytes = new HyperLogLog().toBytes();
+        bytes[1] = HyperLogLog.PRECISION + 1;
+
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(bytes));
+    }
+
+    private static HyperLogLog sketch(int from, int to) {
+        HyperLogLog sketch = new HyperLogLog();
+        offer(sketch, from, to);
+        return sketch;
+    }
+
+    private static void offer(HyperLogLog sketch, int from, int to) {
+        for (int i = from; i < to; i++) {
+            sketch.offer(Hashing.hash64("10.0." + (i >>> 8) + "." + (i & 0xFF)));
+        }
+    }
+
+    private static void assertWithin(long expected, long actual, double relativeError) {
+        assertTrue(Math.abs(actual - expected) <= Math.max(1, expected * relativeError),
+                () -> "Estimate " + actual + " is not within " + relativeError + " of " + expected);
+    }
+}
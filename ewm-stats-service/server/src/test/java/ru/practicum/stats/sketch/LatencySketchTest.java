@@ -0,0 +1,90 @@
+package ru.practicum.stats.sketch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencySketchTest {
+
+    @Test
+    void emptySketchHasNoQuantiles() {
+        LatencySketch sketch = new LatencySketch();
+
+        assertEquals(0, sketch.count());
+        assertNull(sketch.quantile(0.5));
+        assertNull(LatencySketch.fromBytes(sketch.toBytes()).quantile(0.5));
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {0, 0.1, 0.5, 0.9, 0.99, 0.999, 1})
+    void quantilesAreWithinRelativeAccuracy(double q) {
+        LatencySketch sketch = new LatencySketch();
+        for (long micros = 1; micros <= 100_000; micros++) {
+            sketch.offer(micros);
+        }
+
+        long expected = 1 + (long) (q * 99_999);
+        assertWithinAccuracy(expected, sketch.quantile(q));
+    }
+
+    @Test
+    void countsZeroDurations() {
+        LatencySketch sketch = new LatencySketch();
+        sketch.offer(0, 3);
+        sketch.offer(1_000);
+
+        assertEquals(4, sketch.count());
+        assertEquals(0, sketch.quantile(0.5));
+        assertWithinAccuracy(1_000, sketch.quantile(1));
+    }
+
+    @Test
+    void mergeEqualsSketchOfAllValues() {
+        LatencySketch fast = new LatencySketch();
+        LatencySketch slow = new LatencySketch();
+        LatencySketch all = new LatencySketch();
+        for (long micros = 100; micros < 1_000; micros++) {
+            fast.offer(micros);
+            all.offer(micros);
+        }
+        for (long micros = 1_000_000; micros < 1_001_000; micros++) {
+            slow.offer(micros, 2);
+            all.offer(micros, 2);
+        }
+        slow.offer(0);
+        all.offer(0);
+
+        fast.merge(slow);
+
+        assertEquals(all.count(), fast.count());
+        assertArrayEquals(all.toBytes(), fast.toBytes());
+        for (double q : new double[]{0, 0.25, 0.5, 0.75, 1}) {
+            assertEquals(all.quantile(q), fast.quantile(q));
+        }
+    }
+
+    @Test
+    void survivesSerialization() {
+        LatencySketch sketch = new LatencySketch();
+        sketch.offer(0);
+        for (long micros = 1; micros < 1_000_000; micros *= 3) {
+            sketch.offer(micros, micros % 7 + 1);
+        }
+
+        LatencySketch copy = LatencySketch.fromBytes(sketch.toBytes());
+
+        assertEquals(sketch.count(), copy.count());
+        assertArrayEquals(sketch.toBytes(), copy.toBytes());
+        assertEquals(sketch.quantile(0.9), copy.quantile(0.9));
+    }
+
+    private static void assertWithinAccuracy(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= Math.max(1, expected * LatencySketch.RELATIVE_ACCURACY),
+                () -> actual + " is not within " + LatencySketch.RELATIVE_ACCURACY + " of " + expected);
+    }
+}
@@ -0,0 +1,118 @@
+package ru.practicum.stats.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoaringBitmapTest {
+
+    @Test
+    void emptyBitmap() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+
+        assertEquals(0, bitmap.cardinality());
+        assertFalse(bitmap.contains(0));
+        assertEquals(0, RoaringBitmap.fromBytes(bitmap.toBytes()).cardinality());
+    }
+
+    @Test
+    void countsDistinctValuesAcrossContainers() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            int value = random.nextInt(1 << 20);
+            bitmap.add(value);
+            bitmap.add(value);
+            expected.add(value);
+        }
+
+        assertEquals(expected.size(), bitmap.cardinality());
+        expected.forEach(value -> assertTrue(bitmap.contains(value)));
+        assertFalse(bitmap.contains(1 << 20));
+    }
+
+    @Test
+    void switchesToBitmapContainerAboveArrayLimit() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < 10_000; i++) {
+            bitmap.add(i * 3);
+        }
+
+        assertEquals(10_000, bitmap.cardinality());
+        assertTrue(bitmap.contains(29_997));
+        assertFalse(bitmap.contains(29_998));
+    }
+
+    @Test
+    void keepsNegativeValuesApart() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.add(-1);
+        bitmap.add(-2);
+        bitmap.add(1);
+        bitmap.add(Integer.MIN_VALUE);
+
+        assertEquals(4, bitmap.cardinality());
+        assertTrue(bitmap.contains(-1));
+        assertTrue(bitmap.contains(Integer.MIN_VALUE));
+        assertFalse(bitmap.contains(-3));
+        assertEquals(4, RoaringBitmap.fromBytes(bitmap.toBytes()).cardinality());
+    }
+
+    @Test
+    void mergeIsUnion() {
+        RoaringBitmap sparse = new RoaringBitmap();
+        RoaringBitmap dense = new RoaringBitmap();
+        RoaringBitmap union = new RoaringBitmap();
+        for (int i = 0; i < 1_000; i++) {
+            sparse.add(i * 100);
+            union.add(i * 100);
+        }
+        for (int i = 0; i < 20_000; i++) {
+            dense.add(i);
+            union.add(i);
+        }
+
+        sparse.merge(dense);
+
+        assertEquals(union.cardinality(), sparse.cardinality());
+        assertArrayEquals(union.toBytes(), sparse.toBytes());
+        assertEquals(20_000, dense.cardinality());
+    }
+
+    @Test
+    void mergeDoesNotShareContainers() {
+        RoaringBitmap left = new RoaringBitmap();
+        RoaringBitmap right = new RoaringBitmap();
+        right.add(7);
+
+        left.merge(right);
+        left.add(8);
+
+        assertEquals(1, right.cardinality());
+        assertFalse(right.contains(8));
+    }
+
+    @Test
+    void survivesSerialization() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < 10_000; i++) {
+            bitmap.add(i * 7);
+        }
+        bitmap.add(1 << 24);
+
+        RoaringBitmap copy = RoaringBitmap.fromBytes(bitmap.toBytes());
+
+        assertEquals(bitmap.cardinality(), copy.cardinality());
+        assertArrayEquals(bitmap.toBytes(), copy.toBytes());
+        copy.add(1 << 25);
+        assertEquals(bitmap.cardinality() + 1, copy.cardinality());
+    }
+}
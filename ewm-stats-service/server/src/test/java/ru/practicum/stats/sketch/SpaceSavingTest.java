@@ -0,0 +1,94 @@
+package ru.practicum.stats.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingTest {
+
+    @Test
+    void keepsEveryUriBelowCapacityInCountOrder() {
+        SpaceSaving sketch = new SpaceSaving(10);
+        sketch.offer("/events/2", 5);
+        sketch.offer("/events/1", 7);
+        sketch.offer("/events/3", 5);
+        sketch.offer("/events/2", 3);
+
+        assertEquals(List.of("/events/2", "/events/1", "/events/3"), sketch.uris());
+    }
+
+    @Test
+    void keepsHeavyHittersOfALongTail() {
+        SpaceSaving sketch = new SpaceSaving(16);
+        for (int i = 0; i < 10_000; i++) {
+            sketch.offer("/events/tail/" + i, 1);
+            if (i % 4 == 0) {
+                sketch.offer("/events/1", 1);
+            }
+            if (i % 8 == 0) {
+                sketch.offer("/events/2", 1);
+            }
+        }
+
+        List<String> uris = sketch.uris();
+        assertEquals(16, uris.size());
+        assertEquals(List.of("/events/1", "/events/2"), uris.subList(0, 2));
+    }
+
+    @Test
+    void mergeFindsUrisSplitAcrossSketches() {
+        SpaceSaving left = new SpaceSaving(8);
+        SpaceSaving right = new SpaceSaving(8);
+        for (int i = 0; i < 1_000; i++) {
+            left.offer("/events/left/" + i, 1);
+            right.offer("/events/right/" + i, 1);
+        }
+        left.offer("/events/1", 60);
+        right.offer("/events/1", 60);
+        right.offer("/events/2", 100);
+
+        left.merge(right);
+
+        List<String> uris = left.uris();
+        assertEquals(8, uris.size());
+        assertEquals(List.of("/events/1", "/events/2"), uris.subList(0, 2));
+    }
+
+    @Test
+    void mergeIntoEmptySketchKeepsOtherUris() {
+        SpaceSaving sketch = new SpaceSaving(4);
+        SpaceSaving other = new SpaceSaving(4);
+        other.offer("/events/1", 3);
+        other.offer("/events/2", 1);
+
+        sketch.merge(other);
+
+        assertEquals(List.of("/events/1", "/events/2"), sketch.uris());
+    }
+
+    @Test
+    void survivesSerialization() {
+        SpaceSaving sketch = new SpaceSaving(4);
+        for (int i = 0; i < 10; i++) {
+            sketch.offer("/events/" + i, i);
+        }
+        sketch.offer("/события/1", 100);
+
+        SpaceSaving copy = SpaceSaving.fromBytes(sketch.toBytes());
+
+        assertEquals(sketch.uris(), copy.uris());
+        assertTrue(copy.uris().contains("/события/1"));
+        copy.offer("/events/new", 1_000);
+        assertEquals(4, copy.uris().size());
+        assertEquals("/events/new", copy.uris().get(0));
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSaving(0));
+    }
+}
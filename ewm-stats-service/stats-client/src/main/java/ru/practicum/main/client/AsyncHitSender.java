@@ -0,0 +1,170 @@
+package ru.practicum.main.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import ru.practicum.common.dto.EndpointHit;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Buffers hits in a bounded queue and sends them in batches from a background thread, so callers never wait for
+ * the stats server. A hit that does not fit into the buffer is dropped. A batch that fails with a connection error,
+ * 429 or a 5xx response is retried with exponential backoff up to {@code maxRetries} times and then dropped; other
+ * responses are final. On shutdown the buffer is flushed within {@code shutdownTimeout}.
+ */
+@Slf4j
+class AsyncHitSender {
+
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+
+    private final Function<List<EndpointHit>, ResponseEntity<Object>> sender;
+    private final BlockingQueue<EndpointHit> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+    private final Duration shutdownTimeout;
+    private final Counter flushedCounter;
+    private final Counter retriedCounter;
+    private final Counter droppedCounter;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    AsyncHitSender(Function<List<EndpointHit>, ResponseEntity<Object>> sender, int capacity, int batchSize,
+                   Duration flushInterval, int maxRetries, Duration retryBackoff, Duration shutdownTimeout,
+                   MeterRegistry meterRegistry) {
+        this.sender = sender;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.maxRetries = maxRetries;
+        this.retryBackoffMillis = retryBackoff.toMillis();
+        this.shutdownTimeout = shutdownTimeout;
+        this.flushedCounter = Counter.builder("stats.client.hits")
+                .tag("result", "flushed")
+                .description("Hits delivered to the stats server")
+                .register(meterRegistry);
+        this.retriedCounter = Counter.builder("stats.client.hits")
+                .tag("result", "retried")
+                .description("Hits sent again after a failed batch")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("stats.client.hits")
+                .tag("result", "dropped")
+                .description("Hits given up because the buffer was full or retries ran out")
+                .register(meterRegistry);
+        Gauge.builder("stats.client.buffer.depth", queue, BlockingQueue::size)
+                .description("Hits waiting to be sent")
+                .register(meterRegistry);
+        this.flusher = new Thread(this::drainLoop, "stats-client-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    void offer(EndpointHit hit) {
+        if (!running || !queue.offer(hit)) {
+            droppedCounter.increment();
+        }
+    }
+
+    void close() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(shutdownTimeout.toMillis());
+        if (!queue.isEmpty()) {
+            log.warn("Stats client stopped with {} unsent hits", queue.size());
+        }
+    }
+
+    private void drainLoop() {
+        List<EndpointHit> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                collect(batch);
+                flush(batch);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        while ((!batch.isEmpty() || !queue.isEmpty()) && System.nanoTime() < deadline) {
+            queue.drainTo(batch, batchSize - batch.size());
+            if (!send(batch)) {
+                droppedCounter.increment(batch.size());
+                log.error("Dropping {} hits on shutdown", batch.size());
+            }
+            batch.clear();
+        }
+    }
+
+    private void collect(List<EndpointHit> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            EndpointHit hit = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (hit == null) {
+                return;
+            }
+            batch.add(hit);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+    }
+
+    /**
+     * Sends the batch with retries and clears it once it is delivered or given up.
+     */
+    private void flush(List<EndpointHit> batch) throws InterruptedException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (int attempt = 0; !send(batch); attempt++) {
+            if (attempt == maxRetries) {
+                droppedCounter.increment(batch.size());
+                log.error("Dropping {} hits after {} retries", batch.size(), maxRetries);
+                break;
+            }
+            retriedCounter.increment(batch.size());
+            Thread.sleep(Math.min(MAX_BACKOFF_MILLIS, retryBackoffMillis << Math.min(attempt, 16)));
+        }
+        batch.clear();
+    }
+
+    /**
+     * Returns {@code false} if the batch should be retried.
+     */
+    private boolean send(List<EndpointHit> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        HttpStatus status;
+        try {
+            status = sender.apply(List.copyOf(batch)).getStatusCode();
+        } catch (RuntimeException e) {
+            log.warn("Failed to send {} hits: {}", batch.size(), e.getMessage());
+            return false;
+        }
+        if (status.is2xxSuccessful()) {
+            flushedCounter.increment(batch.size());
+            return true;
+        }
+        if (status == HttpStatus.TOO_MANY_REQUESTS || status.is5xxServerError()) {
+            log.warn("Stats server answered {} to {} hits", status, batch.size());
+            return false;
+        }
+        droppedCounter.increment(batch.size());
+        log.error("Stats server rejected {} hits with {}", batch.size(), status);
+        return true;
+    }
+}
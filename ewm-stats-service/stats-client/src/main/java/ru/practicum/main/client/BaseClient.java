@@ -1,6 +1,7 @@
 package ru.practicum.main.client;
 
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.lang.Nullable;
 import org.springframework.web.client.HttpStatusCodeException;
@@ -32,9 +33,16 @@ public class BaseClient {
 
     protected <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path,
                                                             @Nullable Map<String, Object> parameters, @Nullable T body) {
+        return makeAndSendRequest(method, path, parameters, body, MediaType.APPLICATION_JSON,
+                List.of(MediaType.APPLICATION_JSON));
+    }
+
+    protected <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path,
+                                                            @Nullable Map<String, Object> parameters, @Nullable T body,
+                                                            MediaType contentType, List<MediaType> accept) {
         HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        headers.setContentType(contentType);
+        headers.setAccept(accept);
         HttpEntity<T> requestEntity = new HttpEntity<>(body, headers);
         ResponseEntity<Object> serverResponse;
         try {
@@ -48,4 +56,26 @@ public class BaseClient {
         }
         return prepareStatsResponse(serverResponse);
     }
+
+    /**
+     * Same as {@link #makeAndSendRequest(HttpMethod, String, Map, Object)}, but reads a successful response into
+     * {@code responseType}. An error status is returned without a body.
+     */
+    protected <T, R> ResponseEntity<R> makeAndSendRequest(HttpMethod method, String path,
+                                                          @Nullable Map<String, Object> parameters, @Nullable T body,
+                                                          List<MediaType> accept,
+                                                          ParameterizedTypeReference<R> responseType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(accept);
+        HttpEntity<T> requestEntity = new HttpEntity<>(body, headers);
+        try {
+            if (parameters != null) {
+                return rest.exchange(path, method, requestEntity, responseType, parameters);
+            }
+            return rest.exchange(path, method, requestEntity, responseType);
+        } catch (HttpStatusCodeException e) {
+            return ResponseEntity.status(e.getStatusCode()).build();
+        }
+    }
 }
\ No newline at end of file
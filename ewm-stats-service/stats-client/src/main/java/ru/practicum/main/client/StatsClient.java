@@ -1,34 +1,163 @@
 package ru.practicum.main.client;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import ru.practicum.common.codec.StatsBinaryHttpMessageConverter;
 import ru.practicum.common.dto.EndpointHit;
+import ru.practicum.common.dto.HitDto;
+import ru.practicum.common.dto.StatsQueryRequest;
+import ru.practicum.common.dto.StatsRangeQuery;
+import ru.practicum.common.dto.StatsRangeResult;
+import ru.practicum.common.dto.ViewStats;
 import ru.practicum.main.exception.BadRequestException;
 
+import javax.annotation.PreDestroy;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Service
 public class StatsClient extends BaseClient {
     private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    public StatsClient(@Value("${stats-server.url}") String serverUrl, RestTemplateBuilder builder) {
-        super(serverUrl, builder);
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(2);
+    private static final Duration READ_TIMEOUT = Duration.ofSeconds(5);
+    private static final ParameterizedTypeReference<List<StatsRangeResult>> RANGE_RESULTS =
+            new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<List<ViewStats>> VIEW_STATS =
+            new ParameterizedTypeReference<>() {};
+
+    private final boolean binary;
+    @Nullable
+    private final AsyncHitSender asyncSender;
+
+    public StatsClient(@Value("${stats-server.url}") String serverUrl,
+                       @Value("${stats-server.wire-format:json}") String wireFormat,
+                       @Value("${stats-server.mode:sync}") String mode,
+                       @Value("${stats-server.max-connections:20}") int maxConnections,
+                       @Value("${stats-server.async.buffer-capacity:10000}") int bufferCapacity,
+                       @Value("${stats-server.async.batch-size:500}") int batchSize,
+                       @Value("${stats-server.async.flush-interval:200ms}") Duration flushInterval,
+                       @Value("${stats-server.async.max-retries:3}") int maxRetries,
+                       @Value("${stats-server.async.retry-backoff:200ms}") Duration retryBackoff,
+                       @Value("${stats-server.async.shutdown-timeout:10s}") Duration shutdownTimeout,
+                       RestTemplateBuilder builder, ObjectProvider<MeterRegistry> meterRegistry) {
+        super(serverUrl, builder.requestFactory(() -> pooledRequestFactory(maxConnections)));
+        this.binary = "binary".equalsIgnoreCase(wireFormat);
+        rest.getMessageConverters().add(new StatsBinaryHttpMessageConverter());
+        this.asyncSender = "async".equalsIgnoreCase(mode)
+                ? new AsyncHitSender(this::send, bufferCapacity, batchSize, flushInterval, maxRetries, retryBackoff,
+                        shutdownTimeout, meterRegistry.getIfAvailable(SimpleMeterRegistry::new))
+                : null;
+    }
+
+    /**
+     * Keep-alive connections shared by all requests to the stats server.
+     */
+    private static HttpComponentsClientHttpRequestFactory pooledRequestFactory(int maxConnections) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(
+                HttpClients.custom()
+                        .setConnectionManager(connectionManager)
+                        .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+                        .evictIdleConnections(30, TimeUnit.SECONDS)
+                        .build());
+        factory.setConnectTimeout((int) CONNECT_TIMEOUT.toMillis());
+        factory.setReadTimeout((int) READ_TIMEOUT.toMillis());
+        return factory;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (asyncSender != null) {
+            asyncSender.close();
+        }
     }
 
     public void addHit(String app, String uri, String ip, LocalDateTime timestamp) {
-        EndpointHit endpointHit = new EndpointHit(app, uri, ip, encode(timestamp));
+        addHit(app, uri, ip, timestamp, null);
+    }
+
+    /**
+     * In async mode the hit is only buffered and this returns at once.
+     */
+    public void addHit(String app, String uri, String ip, LocalDateTime timestamp, @Nullable Long durationMicros) {
+        if (asyncSender != null) {
+            asyncSender.offer(new EndpointHit(app, uri, ip, encode(timestamp), durationMicros));
+            return;
+        }
+        if (binary) {
+            sendBinary(List.of(new HitDto(app, uri, ip, timestamp, durationMicros)));
+            return;
+        }
+        EndpointHit endpointHit = new EndpointHit(app, uri, ip, encode(timestamp), durationMicros);
         makeAndSendRequest(HttpMethod.POST, "/hit", null, endpointHit);
     }
 
+    public void addHits(List<EndpointHit> endpointHits) {
+        if (endpointHits.isEmpty()) {
+            return;
+        }
+        if (asyncSender != null) {
+            endpointHits.forEach(asyncSender::offer);
+            return;
+        }
+        send(endpointHits);
+    }
+
+    private ResponseEntity<Object> send(List<EndpointHit> endpointHits) {
+        if (binary) {
+            return sendBinary(endpointHits.stream()
+                    .map(hit -> new HitDto(hit.getApp(), hit.getUri(), hit.getIp(),
+                            LocalDateTime.parse(hit.getTimestamp(), FORMAT), hit.getDurationMicros()))
+                    .collect(Collectors.toList()));
+        }
+        return makeAndSendRequest(HttpMethod.POST, "/hits", null, endpointHits);
+    }
+
     public ResponseEntity<Object> getStats(LocalDateTime start, LocalDateTime end,
                                            @Nullable List<String> uris, @Nullable Boolean unique) {
         Map<String, Object> parameters = new HashMap<>();
+        String path = statsPath(start, end, uris, unique, parameters);
+        if (binary) {
+            return makeAndSendRequest(HttpMethod.GET, path, parameters, null, MediaType.APPLICATION_JSON,
+                    List.of(StatsBinaryHttpMessageConverter.MEDIA_TYPE, MediaType.APPLICATION_JSON));
+        }
+        return makeAndSendRequest(HttpMethod.GET, path, parameters, null);
+    }
+
+    /**
+     * Same as {@link #getStats}, but reads the response straight into {@link ViewStats} instead of a tree of maps.
+     */
+    public ResponseEntity<List<ViewStats>> getViewStats(LocalDateTime start, LocalDateTime end,
+                                                        @Nullable List<String> uris, @Nullable Boolean unique) {
+        Map<String, Object> parameters = new HashMap<>();
+        String path = statsPath(start, end, uris, unique, parameters);
+        return makeAndSendRequest(HttpMethod.GET, path, parameters, null,
+                binary ? List.of(StatsBinaryHttpMessageConverter.MEDIA_TYPE, MediaType.APPLICATION_JSON)
+                        : List.of(MediaType.APPLICATION_JSON), VIEW_STATS);
+    }
+
+    private String statsPath(LocalDateTime start, LocalDateTime end, @Nullable List<String> uris,
+                             @Nullable Boolean unique, Map<String, Object> parameters) {
         if (Objects.isNull(start) || Objects.isNull(end) || end.isBefore(start)) {
             throw new BadRequestException("Start and end shouldn't be null, and end should be after start.");
         }
@@ -41,8 +170,24 @@ public class StatsClient extends BaseClient {
         if (Objects.nonNull(unique)) {
             pathBuilder.add("&unique=" + unique);
         }
-        String path = pathBuilder.toString();
-        return makeAndSendRequest(HttpMethod.GET, path, parameters, null);
+        return pathBuilder.toString();
+    }
+
+    /**
+     * Counts hits of every uri over its own range in a single request. Uris without hits are left out.
+     */
+    public ResponseEntity<List<StatsRangeResult>> queryStats(List<StatsRangeQuery> ranges, boolean unique) {
+        if (ranges.isEmpty()) {
+            return ResponseEntity.ok(new ArrayList<>());
+        }
+        StatsQueryRequest request = StatsQueryRequest.builder().ranges(ranges).unique(unique).build();
+        return makeAndSendRequest(HttpMethod.POST, "/stats/query", null, request,
+                List.of(MediaType.APPLICATION_JSON), RANGE_RESULTS);
+    }
+
+    private ResponseEntity<Object> sendBinary(List<HitDto> hits) {
+        return makeAndSendRequest(HttpMethod.POST, "/hits", null, hits, StatsBinaryHttpMessageConverter.MEDIA_TYPE,
+                List.of(MediaType.APPLICATION_JSON));
     }
 
     private String encode(LocalDateTime dateTime) {
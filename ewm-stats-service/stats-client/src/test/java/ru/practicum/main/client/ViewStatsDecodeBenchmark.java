@@ -0,0 +1,96 @@
+package ru.practicum.main.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.common.codec.StatsBinaryCodec;
+import ru.practicum.common.dto.ViewStats;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Decoding of one {@code /stats} response body the way view counts used to read it, through an untyped tree, and
+ * the way {@link StatsClient#getViewStats} reads it now. Run with
+ * {@code mvn -Pbenchmark -pl ewm-stats-service/stats-client verify}; the gc profiler reports bytes allocated per
+ * operation as {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ViewStatsDecodeBenchmark {
+
+    private static final TypeReference<List<ViewStats>> VIEW_STATS = new TypeReference<>() {
+    };
+
+    @Param({"1", "100"})
+    private int rows;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectReader reader = mapper.readerFor(VIEW_STATS);
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<ViewStats> stats = IntStream.range(0, rows)
+                .mapToObj(i -> new ViewStats("ewm-main-service", "/events/" + i, 1_000L + i))
+                .collect(Collectors.toList());
+        json = mapper.writeValueAsBytes(stats);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StatsBinaryCodec.writeViewStats(stats, out);
+        binary = out.toByteArray();
+    }
+
+    /**
+     * The former single event path: the body was read as maps, written back to a string and parsed again.
+     */
+    @Benchmark
+    public List<ViewStats> treeReserialized() throws IOException {
+        Object body = mapper.readValue(json, Object.class);
+        return reparse(mapper.writeValueAsString(body));
+    }
+
+    /**
+     * The former event list path: the body was read as maps and converted with {@code convertValue}.
+     */
+    @Benchmark
+    public List<ViewStats> treeConverted() throws IOException {
+        Object body = mapper.readValue(json, Object.class);
+        return mapper.convertValue(body, VIEW_STATS);
+    }
+
+    @Benchmark
+    public List<ViewStats> typedJson() throws IOException {
+        return reader.readValue(json);
+    }
+
+    @Benchmark
+    public List<ViewStats> typedBinary() throws IOException {
+        return StatsBinaryCodec.readViewStats(new ByteArrayInputStream(binary));
+    }
+
+    private List<ViewStats> reparse(String value) throws JsonProcessingException {
+        return mapper.readValue(value, VIEW_STATS);
+    }
+}
@@ -0,0 +1,196 @@
+package ru.practicum.common.codec;
+
+import ru.practicum.common.dto.HitDto;
+import ru.practicum.common.dto.ViewStats;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Length-prefixed binary format for hits and stats exchanged between the stats client and server. A payload is a
+ * header ({@code int} magic, {@code byte} version, {@code byte} kind) followed by records, each introduced by a
+ * {@code 1} byte, and a closing {@code 0} byte. A hit that carries a request duration is introduced by a {@code 2}
+ * byte instead and ends with the duration in microseconds as a long. Strings are modified UTF-8 with a two byte length, timestamps are
+ * epoch milliseconds of the local date-time taken as UTC, and counts are eight byte longs.
+ */
+public final class StatsBinaryCodec {
+
+    public static final String MEDIA_TYPE_VALUE = "application/x-ewm-stats";
+
+    private static final int MAGIC = 0x45574D53;
+    private static final byte VERSION = 1;
+    private static final byte RECORD = 1;
+    private static final byte TIMED_RECORD = 2;
+    private static final byte END = 0;
+
+    private StatsBinaryCodec() {
+    }
+
+    public static void writeHits(Collection<HitDto> hits, OutputStream out) throws IOException {
+        DataOutputStream data = header(out, Kind.HITS);
+        for (HitDto hit : hits) {
+            data.writeByte(hit.getDurationMicros() == null ? RECORD : TIMED_RECORD);
+            data.writeUTF(hit.getApp());
+            data.writeUTF(hit.getUri());
+            data.writeUTF(hit.getIp());
+            data.writeLong(hit.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli());
+            if (hit.getDurationMicros() != null) {
+                data.writeLong(hit.getDurationMicros());
+            }
+        }
+        data.writeByte(END);
+        data.flush();
+    }
+
+    public static void writeViewStats(Collection<ViewStats> stats, OutputStream out) throws IOException {
+        DataOutputStream data = header(out, Kind.VIEW_STATS);
+        for (ViewStats viewStats : stats) {
+            data.writeByte(RECORD);
+            data.writeUTF(viewStats.getApp());
+            data.writeUTF(viewStats.getUri());
+            data.writeLong(viewStats.getHits());
+        }
+        data.writeByte(END);
+        data.flush();
+    }
+
+    /**
+     * Reads hits lazily, so a large upload is never held in memory as a whole. Malformed input surfaces as
+     * {@link IllegalArgumentException}.
+     */
+    public static Iterator<HitDto> readHits(InputStream in) throws IOException {
+        return new RecordIterator<>(open(in, Kind.HITS), StatsBinaryCodec::readHit);
+    }
+
+    public static List<ViewStats> readViewStats(InputStream in) throws IOException {
+        return toList(new RecordIterator<>(open(in, Kind.VIEW_STATS), StatsBinaryCodec::readViewStats));
+    }
+
+    /**
+     * Reads a payload of either kind into a list, as declared by its header.
+     */
+    public static List<?> read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        Kind kind = readHeader(data);
+        if (kind == Kind.HITS) {
+            return toList(new RecordIterator<>(data, StatsBinaryCodec::readHit));
+        }
+        return toList(new RecordIterator<>(data, StatsBinaryCodec::readViewStats));
+    }
+
+    private static HitDto readHit(DataInputStream data, byte marker) throws IOException {
+        return new HitDto(data.readUTF(), data.readUTF(), data.readUTF(),
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(data.readLong()), ZoneOffset.UTC),
+                marker == TIMED_RECORD ? data.readLong() : null);
+    }
+
+    private static ViewStats readViewStats(DataInputStream data, byte marker) throws IOException {
+        return new ViewStats(data.readUTF(), data.readUTF(), data.readLong());
+    }
+
+    private static DataOutputStream header(OutputStream out, Kind kind) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeByte(kind.ordinal());
+        return data;
+    }
+
+    private static DataInputStream open(InputStream in, Kind expected) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        Kind kind = readHeader(data);
+        if (kind != expected) {
+            throw new IllegalArgumentException("Expected " + expected + " payload but got " + kind);
+        }
+        return data;
+    }
+
+    private static Kind readHeader(DataInputStream data) throws IOException {
+        try {
+            if (data.readInt() != MAGIC || data.readByte() != VERSION) {
+                throw new IllegalArgumentException("Unsupported stats payload");
+            }
+            int kind = data.readUnsignedByte();
+            if (kind >= Kind.values().length) {
+                throw new IllegalArgumentException("Unknown stats payload kind " + kind);
+            }
+            return Kind.values()[kind];
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Truncated stats payload", e);
+        }
+    }
+
+    private static <T> List<T> toList(Iterator<T> records) {
+        List<T> list = new ArrayList<>();
+        records.forEachRemaining(list::add);
+        return list;
+    }
+
+    private enum Kind {
+        HITS,
+        VIEW_STATS
+    }
+
+    private interface RecordReader<T> {
+        T read(DataInputStream data, byte marker) throws IOException;
+    }
+
+    private static class RecordIterator<T> implements Iterator<T> {
+
+        private final DataInputStream data;
+        private final RecordReader<T> reader;
+        private Boolean hasNext;
+        private byte marker;
+
+        RecordIterator(DataInputStream data, RecordReader<T> reader) {
+            this.data = data;
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (hasNext == null) {
+                try {
+                    marker = data.readByte();
+                    if (marker != RECORD && marker != TIMED_RECORD && marker != END) {
+                        throw new IllegalArgumentException("Malformed stats payload");
+                    }
+                    hasNext = marker != END;
+                } catch (EOFException e) {
+                    throw new IllegalArgumentException("Truncated stats payload", e);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return hasNext;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            hasNext = null;
+            try {
+                return reader.read(data, marker);
+            } catch (EOFException e) {
+                throw new IllegalArgumentException("Truncated stats payload", e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
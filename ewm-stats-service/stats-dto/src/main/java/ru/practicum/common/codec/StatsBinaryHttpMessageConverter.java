@@ -0,0 +1,103 @@
+package ru.practicum.common.codec;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.lang.Nullable;
+import ru.practicum.common.dto.HitDto;
+import ru.practicum.common.dto.ViewStats;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/**
+ * Reads and writes collections of {@link HitDto} and {@link ViewStats} in the {@link StatsBinaryCodec} format.
+ * Reading into {@code Object} yields a list of whatever the payload header declares.
+ */
+public class StatsBinaryHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType MEDIA_TYPE = MediaType.valueOf(StatsBinaryCodec.MEDIA_TYPE_VALUE);
+
+    public StatsBinaryHttpMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == Object.class || Collection.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return isSupported(type) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        return (type == null ? supports(clazz) : isSupported(type)) && canWrite(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        return readInternal(Object.class, inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return StatsBinaryCodec.read(inputMessage.getBody());
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException(e.getMessage(), e, inputMessage);
+        }
+    }
+
+    /**
+     * The payload kind comes from the declared element type, so an empty list is still labelled correctly. Only
+     * an untyped collection, such as a request body, falls back to the runtime type of its items.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object body, @Nullable Type type, HttpOutputMessage outputMessage) throws IOException {
+        Collection<?> items = (Collection<?>) body;
+        Type element = elementType(type);
+        if (element == null) {
+            element = items.stream().allMatch(HitDto.class::isInstance) ? HitDto.class
+                    : items.stream().allMatch(ViewStats.class::isInstance) ? ViewStats.class : null;
+        } else if (!items.stream().allMatch(((Class<?>) element)::isInstance)) {
+            element = null;
+        }
+        if (element == HitDto.class) {
+            StatsBinaryCodec.writeHits((Collection<HitDto>) items, outputMessage.getBody());
+        } else if (element == ViewStats.class) {
+            StatsBinaryCodec.writeViewStats((Collection<ViewStats>) items, outputMessage.getBody());
+        } else {
+            throw new HttpMessageNotWritableException("Only hits and view stats can be written as " + MEDIA_TYPE);
+        }
+    }
+
+    @Nullable
+    private static Type elementType(@Nullable Type type) {
+        if (type instanceof ParameterizedType) {
+            Type element = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (element == HitDto.class || element == ViewStats.class) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    private boolean isSupported(Type type) {
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            Type element = parameterized.getActualTypeArguments()[0];
+            return parameterized.getRawType() instanceof Class && supports((Class<?>) parameterized.getRawType()) &&
+                    (element == HitDto.class || element == ViewStats.class);
+        }
+        return type instanceof Class && supports((Class<?>) type);
+    }
+}
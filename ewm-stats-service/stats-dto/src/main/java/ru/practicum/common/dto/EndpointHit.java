@@ -1,10 +1,12 @@
 package ru.practicum.common.dto;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
 
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.PositiveOrZero;
 
 @Getter
 @Setter
@@ -19,4 +21,7 @@ public class EndpointHit {
     private String ip;
     @NotBlank
     private String timestamp;
+    @PositiveOrZero
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long durationMicros;
 }
\ No newline at end of file
@@ -2,6 +2,9 @@ package ru.practicum.common.dto;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import lombok.*;
 
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.PositiveOrZero;
 import java.time.LocalDateTime;
 
 @Data
@@ -10,11 +13,17 @@ import java.time.LocalDateTime;
 @NoArgsConstructor(force = true)
 public class HitDto {
     @NonNull
+    @NotBlank
     private String app;
     @NonNull
+    @NotBlank
     private String uri;
     @NonNull
+    @NotBlank
     private String ip;
+    @NotNull
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime timestamp;
+    @PositiveOrZero
+    private Long durationMicros;
 }
\ No newline at end of file
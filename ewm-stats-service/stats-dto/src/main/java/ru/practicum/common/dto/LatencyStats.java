@@ -0,0 +1,20 @@
+package ru.practicum.common.dto;
+
+import lombok.*;
+
+/**
+ * Request duration percentiles of one {@code (app, uri)} in microseconds, over the hits that reported a duration.
+ */
+@Getter
+@Setter
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class LatencyStats {
+    private String app;
+    private String uri;
+    private Long count;
+    private Long p50;
+    private Long p95;
+    private Long p99;
+}
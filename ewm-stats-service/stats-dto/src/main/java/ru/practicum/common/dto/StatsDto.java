@@ -21,4 +21,5 @@ public class StatsDto {
     LocalDateTime end;
     List<String> uris;
     Boolean unique;
+    Boolean approximate;
 }
\ No newline at end of file
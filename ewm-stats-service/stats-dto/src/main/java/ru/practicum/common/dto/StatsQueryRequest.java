@@ -0,0 +1,21 @@
+package ru.practicum.common.dto;
+
+import lombok.*;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+/**
+ * Hit counts of many uris, each over its own inclusive time range.
+ */
+@Getter
+@Setter
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatsQueryRequest {
+    @NotEmpty
+    private List<@Valid StatsRangeQuery> ranges;
+    private boolean unique;
+}
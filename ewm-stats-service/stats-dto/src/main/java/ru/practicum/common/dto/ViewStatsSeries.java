@@ -0,0 +1,16 @@
+package ru.practicum.common.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class ViewStatsSeries {
+    private String app;
+    private String uri;
+    private List<SeriesPoint> points;
+}
@@ -0,0 +1,108 @@
+package ru.practicum.common.codec;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.common.dto.HitDto;
+import ru.practicum.common.dto.ViewStats;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StatsBinaryCodecTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 1, 2, 3, 4, 5);
+
+    @Test
+    void hitsRoundTrip() throws IOException {
+        List<HitDto> hits = List.of(
+                new HitDto("ewm-main-service", "/events/1", "192.168.0.1", TIME, null),
+                new HitDto("ewm-main-service", "/события/2", "2001:db8::1", TIME.plusSeconds(1), 1_500L));
+
+        Iterator<HitDto> read = StatsBinaryCodec.readHits(new ByteArrayInputStream(hits(hits)));
+
+        List<HitDto> copy = new ArrayList<>();
+        read.forEachRemaining(copy::add);
+        assertEquals(hits, copy);
+    }
+
+    @Test
+    void viewStatsRoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StatsBinaryCodec.writeViewStats(List.of(new ViewStats("ewm-main-service", "/events/1", 42L),
+                new ViewStats("ewm-main-service", "/events", 0L)), out);
+
+        List<ViewStats> copy = StatsBinaryCodec.readViewStats(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(2, copy.size());
+        assertEquals("ewm-main-service", copy.get(0).getApp());
+        assertEquals("/events/1", copy.get(0).getUri());
+        assertEquals(42L, copy.get(0).getHits());
+        assertEquals("/events", copy.get(1).getUri());
+        assertEquals(0L, copy.get(1).getHits());
+    }
+
+    @Test
+    void readReturnsKindDeclaredByHeader() throws IOException {
+        HitDto hit = new HitDto("ewm-main-service", "/events/1", "192.168.0.1", TIME, null);
+
+        List<?> read = StatsBinaryCodec.read(new ByteArrayInputStream(hits(List.of(hit))));
+
+        assertEquals(List.of(hit), read);
+    }
+
+    @Test
+    void emptyPayloadRoundTrips() throws IOException {
+        assertFalse(StatsBinaryCodec.readHits(new ByteArrayInputStream(hits(List.of()))).hasNext());
+    }
+
+    @Test
+    void rejectsPayloadOfOtherKind() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StatsBinaryCodec.writeViewStats(List.of(), out);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> StatsBinaryCodec.readHits(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test
+    void rejectsMalformedPayloads() throws IOException {
+        byte[] payload = hits(List.of(new HitDto("ewm-main-service", "/events/1", "192.168.0.1", TIME, null)));
+        byte[] truncated = Arrays.copyOf(payload, payload.length - 5);
+        byte[] badMagic = payload.clone();
+        badMagic[0] = 0;
+        byte[] badMarker = payload.clone();
+        badMarker[6] = 7;
+
+        assertThrows(IllegalArgumentException.class,
+                () -> StatsBinaryCodec.readHits(new ByteArrayInputStream(truncated)).forEachRemaining(hit -> { }));
+        assertThrows(IllegalArgumentException.class,
+                () -> StatsBinaryCodec.readHits(new ByteArrayInputStream(badMagic)));
+        assertThrows(IllegalArgumentException.class,
+                () -> StatsBinaryCodec.readHits(new ByteArrayInputStream(badMarker)).hasNext());
+        assertThrows(IllegalArgumentException.class,
+                () -> StatsBinaryCodec.read(new ByteArrayInputStream(new byte[3])));
+    }
+
+    @Test
+    void timedHitsAreLongerThanPlainOnes() throws IOException {
+        HitDto plain = new HitDto("ewm-main-service", "/events/1", "192.168.0.1", TIME, null);
+        HitDto timed = new HitDto("ewm-main-service", "/events/1", "192.168.0.1", TIME, 0L);
+
+        assertEquals(hits(List.of(plain)).length + Long.BYTES, hits(List.of(timed)).length);
+    }
+
+    private static byte[] hits(List<HitDto> hits) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StatsBinaryCodec.writeHits(hits, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,79 @@
+package ru.practicum.common.codec;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import ru.practicum.common.dto.HitDto;
+import ru.practicum.common.dto.ViewStats;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatsBinaryHttpMessageConverterTest {
+
+    private static final Type HITS = new ParameterizedTypeReference<List<HitDto>>() {
+    }.getType();
+    private static final Type VIEW_STATS = new ParameterizedTypeReference<List<ViewStats>>() {
+    }.getType();
+
+    private final StatsBinaryHttpMessageConverter converter = new StatsBinaryHttpMessageConverter();
+
+    @Test
+    void emptyListIsLabelledByDeclaredType() throws IOException {
+        MockHttpOutputMessage stats = write(List.of(), VIEW_STATS);
+        MockHttpOutputMessage hits = write(List.of(), HITS);
+
+        assertEquals(List.of(), StatsBinaryCodec.readViewStats(new ByteArrayInputStream(stats.getBodyAsBytes())));
+        assertFalse(StatsBinaryCodec.readHits(new ByteArrayInputStream(hits.getBodyAsBytes())).hasNext());
+    }
+
+    @Test
+    void untypedBodyIsLabelledByItems() throws IOException {
+        HitDto hit = new HitDto("ewm-main-service", "/events/1", "192.168.0.1", LocalDateTime.of(2024, 1, 2, 3, 4),
+                null);
+
+        MockHttpOutputMessage output = write(List.of(hit), null);
+
+        Object read = converter.read(Object.class, null, new MockHttpInputMessage(output.getBodyAsBytes()));
+        assertEquals(List.of(hit), read);
+    }
+
+    @Test
+    void rejectsItemsOfOtherTypes() {
+        assertThrows(HttpMessageNotWritableException.class, () -> write(List.of("/events/1"), null));
+        assertThrows(HttpMessageNotWritableException.class, () -> write(List.of("/events/1"), VIEW_STATS));
+    }
+
+    @Test
+    void malformedBodyIsNotReadable() {
+        assertThrows(HttpMessageNotReadableException.class,
+                () -> converter.read(HITS, null, new MockHttpInputMessage(new byte[]{1, 2, 3})));
+    }
+
+    @Test
+    void supportsOnlyStatsCollections() {
+        assertTrue(converter.canRead(HITS, null, StatsBinaryHttpMessageConverter.MEDIA_TYPE));
+        assertTrue(converter.canWrite(VIEW_STATS, List.class, StatsBinaryHttpMessageConverter.MEDIA_TYPE));
+        assertFalse(converter.canWrite(new ParameterizedTypeReference<List<String>>() {
+        }.getType(), List.class, StatsBinaryHttpMessageConverter.MEDIA_TYPE));
+        assertFalse(converter.canRead(HITS, null, MediaType.APPLICATION_JSON));
+    }
+
+    private MockHttpOutputMessage write(List<?> body, Type type) throws IOException {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(body, type, StatsBinaryHttpMessageConverter.MEDIA_TYPE, output);
+        return output;
+    }
+}